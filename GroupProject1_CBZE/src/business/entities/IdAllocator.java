@@ -0,0 +1,104 @@
+package business.entities;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * IdAllocator hands out unique, positive int ids without a shared counter on
+ * the hot path. Threads are spread over a fixed number of cells; each cell
+ * owns a block of consecutive ids carved from a global high-water mark and
+ * issues them one at a time. Only when its block runs out does a cell touch
+ * the high-water mark again.
+ *
+ * Ids are unique but not necessarily consecutive: threads in different cells
+ * draw from different blocks, and the ids left in the blocks when the store
+ * is saved are skipped after a restart. The high-water mark is what has to be
+ * persisted; every id ever issued is at or below it.
+ *
+ */
+public class IdAllocator {
+	private static final int CELLS = 16;
+	private static final int DEFAULT_BLOCK_SIZE = 32;
+	private final int blockSize;
+	private final AtomicInteger highWater = new AtomicInteger();
+	/*
+	 * Each cell packs the next id to issue (low 32 bits) and the end of its
+	 * block (high 32 bits, exclusive). A cell with next == end is empty.
+	 */
+	private final AtomicLongArray cells = new AtomicLongArray(CELLS);
+
+	/**
+	 * Creates an allocator with the default block size.
+	 */
+	public IdAllocator() {
+		this(DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates an allocator that carves blocks of the given size.
+	 *
+	 * @param blockSize the number of ids reserved per block
+	 */
+	public IdAllocator(int blockSize) {
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Returns a new id.
+	 *
+	 * @return an id that has not been issued before
+	 */
+	public int next() {
+		int index = (int) (Thread.currentThread().getId() & (CELLS - 1));
+		while (true) {
+			long cell = cells.get(index);
+			int next = (int) cell;
+			int end = (int) (cell >>> 32);
+			if (next < end) {
+				if (cells.compareAndSet(index, cell, cell + 1)) {
+					return next;
+				}
+			} else {
+				int start = highWater.getAndAdd(blockSize) + 1;
+				/*
+				 * The first id of the block is ours. If another thread refilled
+				 * the cell in the meantime, the rest of the block is skipped.
+				 */
+				cells.compareAndSet(index, cell,
+						pack(start + 1, start + blockSize));
+				return start;
+			}
+		}
+	}
+
+	/**
+	 * Getter for the high-water mark, the highest id that may have been issued.
+	 *
+	 * @return high-water mark
+	 */
+	public int getHighWater() {
+		return highWater.get();
+	}
+
+	/**
+	 * Makes sure that no id at or below the given one will be issued. Blocks
+	 * carved earlier are dropped if the high-water mark moves. Meant for
+	 * loading a store, while no ids are being issued.
+	 *
+	 * @param id an id already in use
+	 */
+	public void reserve(int id) {
+		if (highWater.getAndAccumulate(id, Math::max) < id) {
+			for (int index = 0; index < CELLS; index++) {
+				cells.set(index, 0);
+			}
+		}
+	}
+
+	private static long pack(int next, int end) {
+		return ((long) end << 32) | (next & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,42 @@
+package business.entities;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+
+/**
+ * Converts between the dense numbers that identify members and orders and
+ * their string ids, which consist of a prefix followed by the number.
+ * 
+ */
+final class IdFormat {
+	private static final int MAX_DIGITS = 9;
+
+	private IdFormat() {
+	}
+
+	/**
+	 * Converts an id made of a prefix followed by a positive decimal number to
+	 * that number.
+	 * 
+	 * @param id     the id to be converted
+	 * @param prefix the expected prefix
+	 * @return the number, 0 if the id is malformed
+	 */
+	static int parse(String id, String prefix) {
+		if (id == null || !id.startsWith(prefix)
+				|| id.length() == prefix.length()
+				|| id.length() > prefix.length() + MAX_DIGITS) {
+			return 0;
+		}
+		int number = 0;
+		for (int index = prefix.length(); index < id.length(); index++) {
+			char digit = id.charAt(index);
+			if (digit < '0' || digit > '9') {
+				return 0;
+			}
+			number = number * 10 + (digit - '0');
+		}
+		return number;
+	}
+}
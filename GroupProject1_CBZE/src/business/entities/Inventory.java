@@ -0,0 +1,271 @@
+package business.entities;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Inventory stores the stock, price and reorder level of products in parallel
+ * primitive columns. Every product occupies a dense slot, and the columns are
+ * split into fixed size segments so that growing the inventory never copies
+ * existing values. Whole-inventory aggregates run as plain loops over the
+ * segment arrays.
+ * 
+ * Stock is read and written with volatile semantics, and it can be decremented
+ * and incremented atomically without locking, using compare-and-set on the
+ * array element.
+ * 
+ */
+public class Inventory {
+	private static final int DEFAULT_SEGMENT_BITS = 10;
+	private static final VarHandle STOCK = MethodHandles
+			.arrayElementVarHandle(int[].class);
+	private final int segmentBits;
+	private final int segmentMask;
+	private volatile int[][] stock = new int[0][];
+	private volatile int[][] reorderLevel = new int[0][];
+	private volatile double[][] price = new double[0][];
+	private int size;
+
+	/**
+	 * Creates an empty inventory with the default segment size.
+	 */
+	public Inventory() {
+		this(DEFAULT_SEGMENT_BITS);
+	}
+
+	/**
+	 * Creates an empty inventory whose segments hold 2^segmentBits slots.
+	 * 
+	 * @param segmentBits log2 of the segment size
+	 */
+	public Inventory(int segmentBits) {
+		this.segmentBits = segmentBits;
+		this.segmentMask = (1 << segmentBits) - 1;
+	}
+
+	/**
+	 * Allocates a slot for a product and stores its initial values.
+	 * 
+	 * @param stock        stock of the product
+	 * @param reorderLevel reorder level of the product
+	 * @param price        price of the product
+	 * @return the slot of the product
+	 */
+	public int allocate(int stock, int reorderLevel, double price) {
+		int slot = size;
+		if (slot >>> segmentBits == this.stock.length) {
+			addSegment();
+		}
+		size++;
+		setStock(slot, stock);
+		setReorderLevel(slot, reorderLevel);
+		setPrice(slot, price);
+		return slot;
+	}
+
+	/**
+	 * Releases the slot of a product that left the inventory. The slot is not
+	 * reused; its values are cleared so that it no longer counts towards the
+	 * aggregates.
+	 * 
+	 * @param slot the slot of the product
+	 */
+	public void release(int slot) {
+		setStock(slot, 0);
+		setPrice(slot, 0);
+		setReorderLevel(slot, -1);
+	}
+
+	/**
+	 * Adds one segment to every column.
+	 */
+	private void addSegment() {
+		int segments = stock.length;
+		int segmentSize = segmentMask + 1;
+		int[][] newStock = new int[segments + 1][];
+		int[][] newReorderLevel = new int[segments + 1][];
+		double[][] newPrice = new double[segments + 1][];
+		System.arraycopy(stock, 0, newStock, 0, segments);
+		System.arraycopy(reorderLevel, 0, newReorderLevel, 0, segments);
+		System.arraycopy(price, 0, newPrice, 0, segments);
+		newStock[segments] = new int[segmentSize];
+		newReorderLevel[segments] = new int[segmentSize];
+		newPrice[segments] = new double[segmentSize];
+		stock = newStock;
+		reorderLevel = newReorderLevel;
+		price = newPrice;
+	}
+
+	/**
+	 * Getter for the number of allocated slots.
+	 * 
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * Getters and setters for the columns of a slot
+	 */
+
+	public int getStock(int slot) {
+		return (int) STOCK.getVolatile(stock[slot >>> segmentBits],
+				slot & segmentMask);
+	}
+
+	public void setStock(int slot, int value) {
+		STOCK.setVolatile(stock[slot >>> segmentBits], slot & segmentMask,
+				value);
+	}
+
+	public int getReorderLevel(int slot) {
+		return reorderLevel[slot >>> segmentBits][slot & segmentMask];
+	}
+
+	public void setReorderLevel(int slot, int value) {
+		reorderLevel[slot >>> segmentBits][slot & segmentMask] = value;
+	}
+
+	public double getPrice(int slot) {
+		return price[slot >>> segmentBits][slot & segmentMask];
+	}
+
+	public void setPrice(int slot, double value) {
+		price[slot >>> segmentBits][slot & segmentMask] = value;
+	}
+
+	/**
+	 * Atomically takes a quantity from the stock of a slot, unless the stock
+	 * would drop below 0.
+	 * 
+	 * @param slot     the slot of the product
+	 * @param quantity the quantity to be taken
+	 * @return true iff the stock covered the quantity and was decremented
+	 * @throws IllegalArgumentException if the quantity is not positive
+	 */
+	public boolean tryDecrementStock(int slot, int quantity) {
+		requirePositive(quantity);
+		int[] segment = stock[slot >>> segmentBits];
+		int index = slot & segmentMask;
+		int current;
+		do {
+			current = (int) STOCK.getVolatile(segment, index);
+			if (current - quantity < 0) {
+				return false;
+			}
+		} while (!STOCK.compareAndSet(segment, index, current,
+				current - quantity));
+		return true;
+	}
+
+	/**
+	 * Atomically adds a quantity to the stock of a slot.
+	 * 
+	 * @param slot     the slot of the product
+	 * @param quantity the quantity to be added
+	 * @return the new stock
+	 * @throws IllegalArgumentException if the quantity is not positive
+	 */
+	public int incrementStock(int slot, int quantity) {
+		requirePositive(quantity);
+		return (int) STOCK.getAndAdd(stock[slot >>> segmentBits],
+				slot & segmentMask, quantity) + quantity;
+	}
+
+	private static void requirePositive(int quantity) {
+		if (quantity <= 0) {
+			throw new IllegalArgumentException(
+					"Quantity must be positive: " + quantity);
+		}
+	}
+
+	/**
+	 * Checks whether the stock of a slot can cover the given quantity.
+	 * 
+	 * @param slot     the slot of the product
+	 * @param quantity the quantity requested
+	 * @return true iff the stock would not drop below 0
+	 */
+	public boolean checkStock(int slot, int quantity) {
+		return getStock(slot) - quantity >= 0;
+	}
+
+	/**
+	 * Checks whether the stock of a slot is at or below its reorder level.
+	 * 
+	 * @param slot the slot of the product
+	 * @return true iff the product should be reordered
+	 */
+	public boolean checkReorder(int slot) {
+		return getStock(slot) <= getReorderLevel(slot);
+	}
+
+	/**
+	 * Sums the stock of all slots.
+	 * 
+	 * @return the total number of items in stock
+	 */
+	public long getTotalStock() {
+		long total = 0;
+		int remaining = size;
+		for (int segment = 0; remaining > 0; segment++) {
+			int[] stockSegment = stock[segment];
+			int length = Math.min(remaining, stockSegment.length);
+			for (int index = 0; index < length; index++) {
+				total += stockSegment[index];
+			}
+			remaining -= length;
+		}
+		return total;
+	}
+
+	/**
+	 * Sums stock times price over all slots.
+	 * 
+	 * @return the value of the inventory
+	 */
+	public double getTotalValue() {
+		double total = 0;
+		int remaining = size;
+		for (int segment = 0; remaining > 0; segment++) {
+			int[] stockSegment = stock[segment];
+			double[] priceSegment = price[segment];
+			int length = Math.min(remaining, stockSegment.length);
+			for (int index = 0; index < length; index++) {
+				total += stockSegment[index] * priceSegment[index];
+			}
+			remaining -= length;
+		}
+		return total;
+	}
+
+	/**
+	 * Collects the slots whose stock is at or below their reorder level.
+	 * 
+	 * @return the slots in ascending order
+	 */
+	public int[] getLowStockSlots() {
+		int[] slots = new int[size];
+		int count = 0;
+		int remaining = size;
+		for (int segment = 0; remaining > 0; segment++) {
+			int[] stockSegment = stock[segment];
+			int[] reorderSegment = reorderLevel[segment];
+			int length = Math.min(remaining, stockSegment.length);
+			int base = segment << segmentBits;
+			for (int index = 0; index < length; index++) {
+				if (stockSegment[index] <= reorderSegment[index]) {
+					slots[count++] = base + index;
+				}
+			}
+			remaining -= length;
+		}
+		int[] result = new int[count];
+		System.arraycopy(slots, 0, result, 0, count);
+		return result;
+	}
+}
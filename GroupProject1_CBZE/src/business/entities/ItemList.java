@@ -4,59 +4,203 @@ package business.entities;
  * 
  * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
  */
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An abstract class employing generics with regards to Matchable. Allows
  * sub-collections to extend its generic methods and respective class-bound
  * matching.
  * 
+ * Entities are indexed by their key, so search and remove take constant time,
+ * while iteration still follows the order of insertion. The methods that
+ * change the collection are synchronized on it. Searching by key takes no
+ * lock: the key index is a concurrent map, so lookups scale with the number
+ * of readers even while the collection is written. Null keys are not
+ * indexed.
+ * 
+ * Iteration works on a snapshot and takes no lock. Every entity is kept in an
+ * insertion-ordered log, stamped with the version of the collection that
+ * inserted it and, once removed, with the version that removed it. An
+ * iterator sees exactly the entities that were present at the version
+ * current when it was created, however the collection changes while it
+ * runs. Removed entries are dropped from the log once they make up most of
+ * it; the log is then copied, so iterators working on the old one are not
+ * disturbed.
+ * 
  * @param <T>
  * @param <K>
  */
 public abstract class ItemList<T extends Matchable<K>, K>
 		implements Serializable {
-	// private static final long serialVersionUID = 1L;
-	private List<T> entities = new LinkedList<T>();
+	private static final long serialVersionUID = 1021174638296777329L;
+	/*
+	 * The serialized form is kept as the original list of entities so that
+	 * previously saved data can still be retrieved.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("entities", List.class) };
+	private static final int MIN_COMPACTION = 64;
+	private transient Map<K, Entry<T>> entities =
+			new ConcurrentHashMap<K, Entry<T>>();
+	private transient volatile Log<T> log = new Log<T>(MIN_COMPACTION, 0);
+	private transient volatile long version;
+
+	/**
+	 * An entity in the log, with the versions that inserted and removed it.
+	 */
+	private static class Entry<T> {
+		private final T entity;
+		private final long inserted;
+		private volatile long removed = Long.MAX_VALUE;
+
+		private Entry(T entity, long inserted) {
+			this.entity = entity;
+			this.inserted = inserted;
+		}
+
+		private boolean presentAt(long version) {
+			return inserted <= version && removed > version;
+		}
+	}
+
+	/**
+	 * The entries in the order of insertion. A log is replaced when it is
+	 * full or compacted; entries are only ever appended to the current log.
+	 */
+	private static class Log<T> {
+		private final Entry<T>[] entries;
+		private final long compacted;
+		private volatile int count;
+
+		/**
+		 * @param capacity  the number of entries the log can hold
+		 * @param compacted the version up to which removed entries may be
+		 *                  missing from the log
+		 */
+		@SuppressWarnings("unchecked")
+		private Log(int capacity, long compacted) {
+			this.entries = (Entry<T>[]) new Entry<?>[capacity];
+			this.compacted = compacted;
+		}
+	}
+
+	/**
+	 * Iterates over the entities present at one version of the collection.
+	 */
+	private static class SnapshotIterator<T> implements Iterator<T> {
+		private final Entry<T>[] entries;
+		private final int count;
+		private final long version;
+		private int index;
+		private Entry<T> next;
+
+		private SnapshotIterator(Log<T> log, long version) {
+			this.entries = log.entries;
+			this.count = log.count;
+			this.version = version;
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			while (next == null && index < count) {
+				Entry<T> entry = entries[index++];
+				if (entry.presentAt(version)) {
+					next = entry;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public T next() {
+			if (next == null) {
+				throw new NoSuchElementException("No such element");
+			}
+			T entity = next.entity;
+			advance();
+			return entity;
+		}
+	}
 
 	/**
 	 * Checks whether an entity with a given identifier exists.
 	 * 
 	 * @param id the identifier of the entity
-	 * @return true iff entity exists
+	 * @return the entity iff it exists, null otherwise
 	 * 
 	 */
 	public T search(K id) {
-		for (Iterator<T> iterator = entities.iterator(); iterator.hasNext();) {
-			T entity = iterator.next();
-			if (entity.matches(id)) {
-				return entity;
-			}
+		if (id == null) {
+			return null;
 		}
-		return null;
+		Entry<T> entry = entities.get(id);
+		return entry == null ? null : entry.entity;
 	}
 
 	/**
 	 * Inserts an entity into the collection
 	 * 
 	 * @param entity the entity to be inserted
-	 * @return true iff the entity could be inserted. Currently always true
+	 * @return true iff the entity could be inserted, false if an entity with
+	 *         the same key is already present
 	 */
-	public boolean insert(T entity) {
-		entities.add(entity);
-		return true;
+	public synchronized boolean insert(T entity) {
+		return add(entity);
 	}
 
 	/**
-	 * Returns an iterator for the collection.
+	 * Returns an iterator over a snapshot of the collection. It does not
+	 * block, and is not affected by later changes to the collection.
 	 * 
 	 * @return collection iterator
 	 */
 	public Iterator<T> iterator() {
-		return entities.iterator();
+		long current;
+		Log<T> snapshot;
+		do {
+			current = version;
+			snapshot = log;
+		} while (snapshot.compacted > current);
+		return new SnapshotIterator<T>(snapshot, current);
+	}
+
+	/**
+	 * Adds an entity under a new version.
+	 */
+	private boolean add(T entity) {
+		if (entity.getKey() == null || entities.containsKey(entity.getKey())) {
+			return false;
+		}
+		long next = version + 1;
+		Entry<T> entry = new Entry<T>(entity, next);
+		entities.put(entity.getKey(), entry);
+		append(entry);
+		version = next;
+		return true;
+	}
+
+	/**
+	 * Returns the number of entities in the collection.
+	 * 
+	 * @return the size of the collection
+	 */
+	public synchronized int size() {
+		return entities.size();
 	}
 
 	/**
@@ -64,22 +208,97 @@ public abstract class ItemList<T extends Matchable<K>, K>
 	 * 
 	 */
 	@Override
-	public String toString() {
-		return entities.toString();
+	public synchronized String toString() {
+		return values().toString();
 	}
 
 	/**
 	 * Method to delete a entity from the collection.
 	 * 
 	 * @param id entity identifier of entity to be removed
-	 * @return removed entity
+	 * @return true iff the entity was removed
 	 */
-	public boolean remove(K id) {
-		T entity = search(id);
-		if (entity == null) {
+	public synchronized boolean remove(K id) {
+		Entry<T> entry = id == null ? null : entities.remove(id);
+		if (entry == null) {
 			return false;
-		} else {
-			return entities.remove(entity);
+		}
+		long next = version + 1;
+		entry.removed = next;
+		version = next;
+		Log<T> current = log;
+		if (current.count >= MIN_COMPACTION
+				&& entities.size() < current.count / 2) {
+			compact(current);
+		}
+		return true;
+	}
+
+	/**
+	 * Appends an entry to the log, moving the log to a larger one if it is
+	 * full.
+	 */
+	private void append(Entry<T> entry) {
+		Log<T> current = log;
+		int count = current.count;
+		if (count == current.entries.length) {
+			Log<T> larger = new Log<T>(count * 2, current.compacted);
+			System.arraycopy(current.entries, 0, larger.entries, 0, count);
+			larger.count = count;
+			log = larger;
+			current = larger;
+		}
+		current.entries[count] = entry;
+		current.count = count + 1;
+	}
+
+	/**
+	 * Moves the entries still present to a new log. Iterators for versions
+	 * before the current one keep working on the old log.
+	 */
+	private void compact(Log<T> current) {
+		Log<T> compacted = new Log<T>(
+				Math.max(MIN_COMPACTION, entities.size() * 2), version);
+		int count = 0;
+		for (int index = 0; index < current.count; index++) {
+			Entry<T> entry = current.entries[index];
+			if (entry.removed == Long.MAX_VALUE) {
+				compacted.entries[count++] = entry;
+			}
+		}
+		compacted.count = count;
+		log = compacted;
+	}
+
+	/**
+	 * Lists the entities in the order of insertion.
+	 */
+	private List<T> values() {
+		List<T> values = new ArrayList<T>(entities.size());
+		for (Iterator<T> iterator = iterator(); iterator.hasNext();) {
+			values.add(iterator.next());
+		}
+		return values;
+	}
+
+	private synchronized void writeObject(ObjectOutputStream output)
+			throws IOException {
+		ObjectOutputStream.PutField fields = output.putFields();
+		fields.put("entities", values());
+		output.writeFields();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream input)
+			throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = input.readFields();
+		List<T> list = (List<T>) fields.get("entities", null);
+		entities = new ConcurrentHashMap<K, Entry<T>>();
+		log = new Log<T>(MIN_COMPACTION, 0);
+		if (list != null) {
+			for (T entity : list) {
+				add(entity);
+			}
 		}
 	}
 }
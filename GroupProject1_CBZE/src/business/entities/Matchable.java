@@ -9,4 +9,12 @@ package business.entities;
  */
 public interface Matchable<K> {
 	public boolean matches(K other);
+
+	/**
+	 * Returns the identifier under which the implementing object is matched,
+	 * allowing collections to index it.
+	 * 
+	 * @return the identifier
+	 */
+	public K getKey();
 }
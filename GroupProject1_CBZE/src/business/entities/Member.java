@@ -6,30 +6,40 @@ package business.entities;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
-import business.entities.iterators.FilteredIterator;
-
 /**
- * Member represents a member (customer) of the store.
+ * Member represents a member (customer) of the store. Members are identified
+ * internally by a dense number; the string id ("M" followed by the number) is
+ * only used towards the user interface.
  *
  */
-public class Member implements Serializable, Matchable<String> {
+public class Member implements Serializable, Matchable<Integer> {
 	private static final long serialVersionUID = 1L;
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("name", String.class),
+			new ObjectStreamField("address", String.class),
+			new ObjectStreamField("phone", String.class),
+			new ObjectStreamField("id", String.class),
+			new ObjectStreamField("dateJoined", Calendar.class),
+			new ObjectStreamField("feePaid", String.class),
+			new ObjectStreamField("transactions", List.class) };
 	private String name;
 	private String address;
 	private String phone;
-	private String id;
+	private int number;
 	private Calendar dateJoined;
 	private String feePaid;
 	private static final String MEMBER_STRING = "M";
-	private List<Transaction> transactions = new LinkedList<Transaction>();
-	private static int idCounter;
+	private transient TransactionHistory transactions =
+			new TransactionHistory();
+	private static final IdAllocator idCounter = new IdAllocator();
 
 	/**
 	 * Creates a single member, generating id and corresponding date joined.
@@ -45,7 +55,29 @@ public class Member implements Serializable, Matchable<String> {
 		this.phone = phone;
 		this.setDateJoined(new GregorianCalendar());
 		this.feePaid = feePaid;
-		id = MEMBER_STRING + ++idCounter;
+		number = idCounter.next();
+	}
+
+	/**
+	 * Recreates a member with a known number and date joined, such as one read
+	 * back from the journal. The number is reserved, so it is not issued again.
+	 * 
+	 * @param number     number of the member
+	 * @param name       name of the member
+	 * @param address    address of the member
+	 * @param phone      phone number of the member
+	 * @param feePaid    fee paid by member
+	 * @param dateJoined date the member joined
+	 */
+	public Member(int number, String name, String address, String phone,
+			String feePaid, Calendar dateJoined) {
+		this.name = name;
+		this.address = address;
+		this.phone = phone;
+		this.setDateJoined(dateJoined);
+		this.feePaid = feePaid;
+		this.number = number;
+		idCounter.reserve(number);
 	}
 
 	/**
@@ -55,7 +87,8 @@ public class Member implements Serializable, Matchable<String> {
 	 * @return true or false
 	 */
 	public boolean addTransaction(Transaction transaction) {
-		return transactions.add(transaction);
+		transactions.add(transaction);
+		return true;
 	}
 
 	/**
@@ -64,7 +97,7 @@ public class Member implements Serializable, Matchable<String> {
 	 * @return transaction object
 	 */
 	public Transaction getCurrentTransaction() {
-		return transactions.get(transactions.size() - 1);
+		return transactions.getCurrent();
 	}
 
 	/**
@@ -84,7 +117,8 @@ public class Member implements Serializable, Matchable<String> {
 	}
 
 	/**
-	 * Gets an iterator to a collection of selected transactions
+	 * Gets an iterator to a collection of selected transactions. As in
+	 * Transaction.betweenDates, equal start and end dates select the whole day.
 	 * 
 	 * @param startDate the start date for which the transactions have to be
 	 *                  retrieved
@@ -94,8 +128,8 @@ public class Member implements Serializable, Matchable<String> {
 	 */
 	public Iterator<Transaction> getTransactionsBetweenDates(Calendar startDate,
 			Calendar endDate) {
-		return new FilteredIterator(transactions.iterator(),
-				transaction -> transaction.betweenDates(startDate, endDate));
+		long[] range = TransactionHistory.range(startDate, endDate);
+		return transactions.between(range[0], range[1]);
 	}
 
 	/**
@@ -140,7 +174,26 @@ public class Member implements Serializable, Matchable<String> {
 	 * @return member id
 	 */
 	public String getId() {
-		return id;
+		return MEMBER_STRING + number;
+	}
+
+	/**
+	 * Getter for the member number, the numeric part of the id.
+	 * 
+	 * @return member number
+	 */
+	public int getNumber() {
+		return number;
+	}
+
+	/**
+	 * Converts a member id such as "M12" to its member number.
+	 * 
+	 * @param id the member id
+	 * @return the member number, 0 if the string is not a member id
+	 */
+	public static int parseId(String id) {
+		return IdFormat.parse(id, MEMBER_STRING);
 	}
 
 	/**
@@ -154,6 +207,15 @@ public class Member implements Serializable, Matchable<String> {
 				+ this.dateJoined.get(Calendar.YEAR));
 	}
 
+	/**
+	 * Returns the time the member joined.
+	 * 
+	 * @return time in epoch milliseconds
+	 */
+	public long getJoinedTime() {
+		return dateJoined.getTimeInMillis();
+	}
+
 	/**
 	 * Getter for fee paid
 	 * 
@@ -215,12 +277,11 @@ public class Member implements Serializable, Matchable<String> {
 	@Override
 	public String toString() {
 		String string = "[Member Name: " + name + " || Address: " + address
-				+ " || ID: " + id + " || Phone: " + phone + " || Date Joined: "
+				+ " || ID: " + getId() + " || Phone: " + phone + " || Date Joined: "
 				+ dateJoined + " || Fee Paid: " + feePaid;
 		string += "] transactions: [";
-		for (Iterator<Transaction> iterator = transactions.iterator(); iterator
-				.hasNext();) {
-			string += (Transaction) iterator.next();
+		for (Transaction transaction : transactions) {
+			string += transaction;
 		}
 		string += "]";
 		return string;
@@ -228,10 +289,7 @@ public class Member implements Serializable, Matchable<String> {
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((id == null) ? 0 : id.hashCode());
-		return result;
+		return Integer.hashCode(number);
 	}
 
 	/**
@@ -253,31 +311,90 @@ public class Member implements Serializable, Matchable<String> {
 			return false;
 		}
 		Member other = (Member) object;
-		if (id == null) {
-			if (other.id != null) {
-				return false;
+		return number == other.number;
+	}
+
+	/**
+	 * Method to match via the member number (per implementing Matchable)
+	 */
+	@Override
+	public boolean matches(Integer number) {
+		return this.number == number;
+	}
+
+	/**
+	 * Returns the member number as the key it is matched by (per implementing
+	 * Matchable)
+	 */
+	@Override
+	public Integer getKey() {
+		return number;
+	}
+
+	private void writeObject(ObjectOutputStream output) throws IOException {
+		ObjectOutputStream.PutField fields = output.putFields();
+		fields.put("name", name);
+		fields.put("address", address);
+		fields.put("phone", phone);
+		fields.put("id", getId());
+		fields.put("dateJoined", dateJoined);
+		fields.put("feePaid", feePaid);
+		List<Transaction> list = new ArrayList<Transaction>();
+		for (Transaction transaction : transactions) {
+			list.add(transaction);
+		}
+		fields.put("transactions", list);
+		output.writeFields();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream input)
+			throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = input.readFields();
+		name = (String) fields.get("name", null);
+		address = (String) fields.get("address", null);
+		phone = (String) fields.get("phone", null);
+		number = parseId((String) fields.get("id", null));
+		idCounter.reserve(number);
+		dateJoined = (Calendar) fields.get("dateJoined", null);
+		feePaid = (String) fields.get("feePaid", null);
+		transactions = new TransactionHistory();
+		List<Transaction> list = (List<Transaction>) fields.get("transactions",
+				null);
+		if (list != null) {
+			for (Transaction transaction : list) {
+				transactions.add(transaction);
 			}
-		} else if (!id.equals(other.id)) {
-			return false;
 		}
-		return true;
 	}
 
 	/**
-	 * Method to match via a string identifier (per implementing Matchable)
+	 * Getter for the highest member number issued so far, which is saved
+	 * along with the members
+	 * 
+	 * @return the high-water mark of the member numbers
+	 */
+	public static int getHighWater() {
+		return idCounter.getHighWater();
+	}
+
+	/**
+	 * Reserves the member numbers up to a saved high-water mark, so that they
+	 * are not issued again.
+	 * 
+	 * @param highWater the high-water mark of the member numbers
 	 */
-	@Override
-	public boolean matches(String id) {
-		return this.id.equals(id);
+	public static void reserve(int highWater) {
+		idCounter.reserve(highWater);
 	}
 
 	public static void save(ObjectOutputStream output) throws IOException {
-		output.writeObject(idCounter);
+		output.writeObject(idCounter.getHighWater());
 	}
 
 	public static void retrieve(ObjectInputStream input)
 			throws IOException, ClassNotFoundException {
-		idCounter = (int) input.readObject();
+		idCounter.reserve((int) input.readObject());
 	}
 
 }
\ No newline at end of file
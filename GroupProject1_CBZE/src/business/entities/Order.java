@@ -6,22 +6,31 @@ package business.entities;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 
 /**
- * Order represents the order of a product for the store.
+ * Order represents the order of a product for the store. Orders are identified
+ * internally by a dense number; the string id ("O" followed by the number) is
+ * only used towards the user interface.
  *
  */
-public class Order implements Serializable, Matchable<String> {
+public class Order implements Serializable, Matchable<Integer> {
 	private static final long serialVersionUID = 1L;
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("id", String.class),
+			new ObjectStreamField("productId", String.class),
+			new ObjectStreamField("productName", String.class),
+			new ObjectStreamField("quantity", int.class),
+			new ObjectStreamField("date", Calendar.class) };
 	private static final String ORDER_STRING = "O";
-	private static int orderCounter;
-	private String id;
+	private static final IdAllocator orderCounter = new IdAllocator();
+	private int number;
 	private String productId;
 	private String productName;
-	private int quantity;
+	private volatile int quantity;
 	private Calendar date;
 
 	/**
@@ -31,20 +40,60 @@ public class Order implements Serializable, Matchable<String> {
 	 * @param quantity  quantity of product to be ordered.
 	 */
 	public Order(String productId, String productName, int quantity) {
-		this.id = ORDER_STRING + ++orderCounter;
+		this.number = orderCounter.next();
 		this.productId = productId;
 		this.productName = productName;
 		this.quantity = quantity * 2;
 		this.date = new GregorianCalendar();
 	}
 
+	/**
+	 * Recreates an order with a known number, quantity and date, such as one
+	 * read back from the journal. The quantity is taken as it is, and the
+	 * number is reserved, so it is not issued again.
+	 * 
+	 * @param number      number of the order
+	 * @param productId   product id of product to be ordered
+	 * @param productName name of product to be ordered
+	 * @param quantity    quantity ordered
+	 * @param date        date of the order
+	 */
+	public Order(int number, String productId, String productName,
+			int quantity, Calendar date) {
+		this.number = number;
+		orderCounter.reserve(number);
+		this.productId = productId;
+		this.productName = productName;
+		this.quantity = quantity;
+		this.date = date;
+	}
+
 	/**
 	 * Getter for order id
 	 * 
 	 * @return id
 	 */
 	public String getId() {
-		return id;
+		return ORDER_STRING + number;
+	}
+
+	/**
+	 * Getter for the order number, the numeric part of the id.
+	 * 
+	 * @return order number
+	 */
+	public int getNumber() {
+		return number;
+	}
+
+	/**
+	 * Converts an order id such as "O7" to its order number.
+	 * 
+	 * @param id the order id
+	 * @return the order number, 0 if the string is not an order id
+	 */
+	public static int parseId(String id) {
+		return IdFormat.parse(id, ORDER_STRING);
 	}
 
 	/**
@@ -83,6 +132,16 @@ public class Order implements Serializable, Matchable<String> {
 		this.quantity = quantity;
 	}
 
+	/**
+	 * Adds to the quantity ordered, for demand that arose while the order was
+	 * outstanding. Callers serialize the updates of an order.
+	 * 
+	 * @param quantity the quantity to be added
+	 */
+	public void addQuantity(int quantity) {
+		this.quantity += quantity;
+	}
+
 	/**
 	 * Getter for product name
 	 * 
@@ -112,22 +171,29 @@ public class Order implements Serializable, Matchable<String> {
 				+ this.date.get(Calendar.YEAR));
 	}
 
+	/**
+	 * Returns the time the order was placed.
+	 * 
+	 * @return time in epoch milliseconds
+	 */
+	public long getTime() {
+		return date.getTimeInMillis();
+	}
+
+	/**
+	 * Hashes the order by its number alone, as the quantity of an outstanding
+	 * order grows when reorders are coalesced into it.
+	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((id == null) ? 0 : id.hashCode());
-		result = prime * result
-				+ ((productId == null) ? 0 : productId.hashCode());
-		result = prime * result + quantity;
-		return result;
+		return Integer.hashCode(number);
 	}
 
 	/**
 	 * Checks whether the order is equal to the one supplied
 	 * 
 	 * @param object the order who should be compared
-	 * @return true iff the order ids and product ids respectively match
+	 * @return true iff the order numbers match
 	 */
 	@Override
 	public boolean equals(Object obj) {
@@ -138,27 +204,24 @@ public class Order implements Serializable, Matchable<String> {
 		if (getClass() != obj.getClass())
 			return false;
 		Order other = (Order) obj;
-		if (id == null) {
-			if (other.id != null)
-				return false;
-		} else if (!id.equals(other.id))
-			return false;
-		if (productId == null) {
-			if (other.productId != null)
-				return false;
-		} else if (!productId.equals(other.productId))
-			return false;
-		if (quantity != other.quantity)
-			return false;
-		return true;
+		return number == other.number;
 	}
 
 	/**
-	 * Method to match via a string identifier (per implementing Matchable)
+	 * Method to match via the order number (per implementing Matchable)
 	 */
 	@Override
-	public boolean matches(String id) {
-		return this.id.equals(id);
+	public boolean matches(Integer number) {
+		return this.number == number;
+	}
+
+	/**
+	 * Returns the order number as the key it is matched by (per implementing
+	 * Matchable)
+	 */
+	@Override
+	public Integer getKey() {
+		return number;
 	}
 
 	/**
@@ -167,17 +230,58 @@ public class Order implements Serializable, Matchable<String> {
 	 */
 	@Override
 	public String toString() {
-		return "Order [id=" + id + ", productId=" + productId + ", quantity="
+		return "Order [id=" + getId() + ", productId=" + productId + ", quantity="
 				+ quantity + ", date =" + getDate() + "]";
 	}
 
+	/**
+	 * Getter for the highest order number issued so far, which is saved along
+	 * with the orders
+	 * 
+	 * @return the high-water mark of the order numbers
+	 */
+	public static int getHighWater() {
+		return orderCounter.getHighWater();
+	}
+
+	/**
+	 * Reserves the order numbers up to a saved high-water mark, so that they
+	 * are not issued again.
+	 * 
+	 * @param highWater the high-water mark of the order numbers
+	 */
+	public static void reserve(int highWater) {
+		orderCounter.reserve(highWater);
+	}
+
 	public static void save(ObjectOutputStream output) throws IOException {
-		output.writeObject(orderCounter);
+		output.writeObject(orderCounter.getHighWater());
 	}
 
 	public static void retrieve(ObjectInputStream input)
 			throws IOException, ClassNotFoundException {
-		orderCounter = (int) input.readObject();
+		orderCounter.reserve((int) input.readObject());
+	}
+
+	private void writeObject(ObjectOutputStream output) throws IOException {
+		ObjectOutputStream.PutField fields = output.putFields();
+		fields.put("id", getId());
+		fields.put("productId", productId);
+		fields.put("productName", productName);
+		fields.put("quantity", quantity);
+		fields.put("date", date);
+		output.writeFields();
+	}
+
+	private void readObject(ObjectInputStream input)
+			throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = input.readFields();
+		number = parseId((String) fields.get("id", null));
+		orderCounter.reserve(number);
+		productId = (String) fields.get("productId", null);
+		productName = (String) fields.get("productName", null);
+		quantity = fields.get("quantity", 0);
+		date = (Calendar) fields.get("date", null);
 	}
 
 }
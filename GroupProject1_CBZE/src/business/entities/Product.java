@@ -3,19 +3,30 @@ package business.entities;
 /**
  * @author Zachary Boling-Green, Ethan Nunn, Brian Le and Colin Bolduc
  */
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 /**
- * Product represents a product available.
+ * Product represents a product available. The stock, price and reorder level
+ * are kept in an Inventory; a product is a view over its slot there. A new
+ * product has an inventory of its own until it is moved into a shared one.
  *
  */
 public class Product implements Serializable, Matchable<String> {
 	private static final long serialVersionUID = 1L;
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("name", String.class),
+			new ObjectStreamField("id", String.class),
+			new ObjectStreamField("stock", int.class),
+			new ObjectStreamField("price", double.class),
+			new ObjectStreamField("reorderLevel", int.class) };
 	private String name;
 	private String id;
-	private int stock;
-	private double price;
-	private int reorderLevel;
+	private transient Inventory inventory;
+	private transient int slot;
 
 	/**
 	 * Creates a product with a given name, id, reorder level, price and stock
@@ -30,9 +41,38 @@ public class Product implements Serializable, Matchable<String> {
 			double price) {
 		this.name = name;
 		this.id = id;
-		this.stock = stock;
-		this.reorderLevel = reorderLevel;
-		this.price = price;
+		detach(stock, reorderLevel, price);
+	}
+
+	/**
+	 * Places the product's values in a single-slot inventory of its own.
+	 */
+	private void detach(int stock, int reorderLevel, double price) {
+		inventory = new Inventory(0);
+		slot = inventory.allocate(stock, reorderLevel, price);
+	}
+
+	/**
+	 * Moves the product's values into a slot of the given inventory, after
+	 * which the product is a view over that slot.
+	 * 
+	 * @param target the inventory the product is moved to
+	 */
+	public void moveTo(Inventory target) {
+		int newSlot = target.allocate(getStock(), getReorderLevel(),
+				getPrice());
+		inventory.release(slot);
+		inventory = target;
+		slot = newSlot;
+	}
+
+	/**
+	 * Getter for the product's slot in its inventory.
+	 * 
+	 * @return slot
+	 */
+	public int getSlot() {
+		return slot;
 	}
 
 	/**
@@ -42,10 +82,7 @@ public class Product implements Serializable, Matchable<String> {
 	 * @return true or false iff stock is less than or equal to reorder level.
 	 */
 	public boolean checkReorder() {
-		if (this.stock <= this.reorderLevel) {
-			return true;
-		}
-		return false;
+		return inventory.checkReorder(slot);
 	}
 
 	/**
@@ -72,7 +109,7 @@ public class Product implements Serializable, Matchable<String> {
 	 * @return stock
 	 */
 	public int getStock() {
-		return stock;
+		return inventory.getStock(slot);
 	}
 
 	/**
@@ -81,7 +118,7 @@ public class Product implements Serializable, Matchable<String> {
 	 * @return price
 	 */
 	public double getPrice() {
-		return price;
+		return inventory.getPrice(slot);
 	}
 
 	/**
@@ -90,7 +127,7 @@ public class Product implements Serializable, Matchable<String> {
 	 * @return reorderLevel
 	 */
 	public int getReorderLevel() {
-		return reorderLevel;
+		return inventory.getReorderLevel(slot);
 	}
 
 	/**
@@ -119,7 +156,7 @@ public class Product implements Serializable, Matchable<String> {
 	 * @return true or false if updated successfully
 	 */
 	public void setStock(int stock) {
-		this.stock = stock;
+		inventory.setStock(slot, stock);
 	}
 
 	/**
@@ -130,10 +167,31 @@ public class Product implements Serializable, Matchable<String> {
 	 * @return true or false if updated successfully
 	 */
 	public boolean checkStock(int quantity) {
-		if (this.stock - quantity >= 0) {
-			return true;
-		}
-		return false;
+		return inventory.checkStock(slot, quantity);
+	}
+
+	/**
+	 * Atomically takes a quantity from the product's stock, unless the stock
+	 * would drop below 0. Unlike checkStock followed by setStock, concurrent
+	 * callers cannot oversell the product.
+	 * 
+	 * @param quantity the quantity to be taken
+	 * @return true iff the stock covered the quantity and was decremented
+	 * @throws IllegalArgumentException if the quantity is not positive
+	 */
+	public boolean tryDecrementStock(int quantity) {
+		return inventory.tryDecrementStock(slot, quantity);
+	}
+
+	/**
+	 * Atomically adds a quantity to the product's stock.
+	 * 
+	 * @param quantity the quantity to be added
+	 * @return the new stock
+	 * @throws IllegalArgumentException if the quantity is not positive
+	 */
+	public int incrementStock(int quantity) {
+		return inventory.incrementStock(slot, quantity);
 	}
 
 	/**
@@ -143,7 +201,7 @@ public class Product implements Serializable, Matchable<String> {
 	 * @return true or false if successful
 	 */
 	public boolean setPrice(double price) {
-		this.price = price;
+		inventory.setPrice(slot, price);
 		return true;
 	}
 
@@ -153,7 +211,7 @@ public class Product implements Serializable, Matchable<String> {
 	 * @param reorderLevel
 	 */
 	public void setReorderLevel(int reorderLevel) {
-		this.reorderLevel = reorderLevel;
+		inventory.setReorderLevel(slot, reorderLevel);
 	}
 
 	@Override
@@ -199,8 +257,8 @@ public class Product implements Serializable, Matchable<String> {
 	@Override
 	public String toString() {
 		return "Product Name: " + name + "|| Product ID: " + id
-				+ " || Reorder Level: " + reorderLevel + "  || Qty: " + stock
-				+ " || MSRP:" + price;
+				+ " || Reorder Level: " + getReorderLevel() + "  || Qty: "
+				+ getStock() + " || MSRP:" + getPrice();
 	}
 
 	/**
@@ -210,4 +268,32 @@ public class Product implements Serializable, Matchable<String> {
 	public boolean matches(String id) {
 		return this.id.equals(id);
 	}
+
+	/**
+	 * Returns the id of the product as the key it is matched by (per implementing
+	 * Matchable)
+	 */
+	@Override
+	public String getKey() {
+		return id;
+	}
+
+	private void writeObject(ObjectOutputStream output) throws IOException {
+		ObjectOutputStream.PutField fields = output.putFields();
+		fields.put("name", name);
+		fields.put("id", id);
+		fields.put("stock", getStock());
+		fields.put("price", getPrice());
+		fields.put("reorderLevel", getReorderLevel());
+		output.writeFields();
+	}
+
+	private void readObject(ObjectInputStream input)
+			throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = input.readFields();
+		name = (String) fields.get("name", null);
+		id = (String) fields.get("id", null);
+		detach(fields.get("stock", 0), fields.get("reorderLevel", 0),
+				fields.get("price", 0.0));
+	}
 }
\ No newline at end of file
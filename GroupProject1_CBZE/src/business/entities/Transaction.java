@@ -3,23 +3,28 @@ package business.entities;
 /**
  * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
  */
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a single Transaction object corresponding to a specific member.
+ * The items are kept in a copy-on-write list, so that reports may iterate
+ * over them while a checkout lane adds further items.
  *
  */
 public class Transaction implements Serializable {
 	private static final long serialVersionUID = 1L;
-	private List<TransactionItem> items = new LinkedList<TransactionItem>();;
+	private List<TransactionItem> items =
+			new CopyOnWriteArrayList<TransactionItem>();
 	private Calendar date;
-	private double total;
-	private double payment;
+	private volatile double total;
+	private volatile double payment;
 	private Iterator<TransactionItem> iterator;
 
 	/**
@@ -33,6 +38,18 @@ public class Transaction implements Serializable {
 		this.payment = 0;
 	}
 
+	/**
+	 * Creates an empty transaction with a known date, such as one read back
+	 * from the journal.
+	 * 
+	 * @param date date of the transaction
+	 */
+	public Transaction(Calendar date) {
+		this.date = date;
+		this.total = 0;
+		this.payment = 0;
+	}
+
 	/**
 	 * Getter for payment.
 	 * 
@@ -69,6 +86,15 @@ public class Transaction implements Serializable {
 		this.payment = Math.round(payment * 100.00) / 100.00;
 	}
 
+	/**
+	 * Returns the time of the transaction.
+	 * 
+	 * @return time in epoch milliseconds
+	 */
+	public long getTime() {
+		return date.getTimeInMillis();
+	}
+
 	/**
 	 * Checks whether this transaction is between the given dates
 	 * 
@@ -100,9 +126,10 @@ public class Transaction implements Serializable {
 	}
 
 	/**
-	 * Returns an iterator to all transaction items in transaction.
+	 * Returns all transaction items in transaction. Iterating over the list
+	 * sees the items of one point in time, even while items are added.
 	 * 
-	 * @return iterator to the collection
+	 * @return the collection
 	 */
 	public List<TransactionItem> getItems() {
 		return items;
@@ -150,4 +177,18 @@ public class Transaction implements Serializable {
 		return items.isEmpty();
 	}
 
+	/**
+	 * Reads the transaction back, moving the items of a transaction saved
+	 * with a plain list into a copy-on-write one.
+	 * 
+	 * @param input the stream being read
+	 * @throws IOException            if the stream fails
+	 * @throws ClassNotFoundException if a class of the items is missing
+	 */
+	private void readObject(ObjectInputStream input)
+			throws IOException, ClassNotFoundException {
+		input.defaultReadObject();
+		items = new CopyOnWriteArrayList<TransactionItem>(items);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,236 @@
+package business.entities;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The transactions of a single member, kept in arrays sorted by the time of
+ * each transaction. Range queries binary-search the start of the range and
+ * only visit the transactions within it.
+ * 
+ * The arrays are never changed once published: adding or removing a
+ * transaction copies them and publishes the copies through a single volatile
+ * field, so queries may run without the member's lock and see the
+ * transactions of one point in time. Changes are made under the member's
+ * lock, one at a time.
+ * 
+ */
+public class TransactionHistory implements Iterable<Transaction> {
+	private volatile Contents contents = new Contents(new long[0],
+			new Transaction[0]);
+	private volatile Transaction current;
+
+	/**
+	 * Adds a transaction at the position of its time and makes it the current
+	 * transaction.
+	 * 
+	 * @param transaction the transaction to be added
+	 */
+	public void add(Transaction transaction) {
+		Contents old = contents;
+		long time = transaction.getTime();
+		int size = old.times.length;
+		int index = size;
+		if (size > 0 && old.times[size - 1] > time) {
+			index = old.upperBound(time);
+		}
+		long[] times = new long[size + 1];
+		Transaction[] transactions = new Transaction[size + 1];
+		System.arraycopy(old.times, 0, times, 0, index);
+		System.arraycopy(old.transactions, 0, transactions, 0, index);
+		System.arraycopy(old.times, index, times, index + 1, size - index);
+		System.arraycopy(old.transactions, index, transactions, index + 1,
+				size - index);
+		times[index] = time;
+		transactions[index] = transaction;
+		contents = new Contents(times, transactions);
+		current = transaction;
+	}
+
+	/**
+	 * Removes a transaction. If it was the current transaction, the latest
+	 * remaining transaction becomes the current one.
+	 * 
+	 * @param transaction the transaction to be removed
+	 * @return true iff the transaction was found
+	 */
+	public boolean remove(Transaction transaction) {
+		Contents old = contents;
+		long time = transaction.getTime();
+		int size = old.times.length;
+		for (int index = old.lowerBound(time); index < size
+				&& old.times[index] == time; index++) {
+			if (old.transactions[index] == transaction) {
+				long[] times = new long[size - 1];
+				Transaction[] transactions = new Transaction[size - 1];
+				System.arraycopy(old.times, 0, times, 0, index);
+				System.arraycopy(old.transactions, 0, transactions, 0, index);
+				System.arraycopy(old.times, index + 1, times, index,
+						size - index - 1);
+				System.arraycopy(old.transactions, index + 1, transactions,
+						index, size - index - 1);
+				contents = new Contents(times, transactions);
+				if (current == transaction) {
+					current = size == 1 ? null : transactions[size - 2];
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the transaction that was added last.
+	 * 
+	 * @return the current transaction, null if there is none
+	 */
+	public Transaction getCurrent() {
+		return current;
+	}
+
+	/**
+	 * Getter for the number of transactions.
+	 * 
+	 * @return size
+	 */
+	public int size() {
+		return contents.times.length;
+	}
+
+	/**
+	 * Checks if the history is empty
+	 * 
+	 * @return true iff there are no transactions
+	 */
+	public boolean isEmpty() {
+		return contents.times.length == 0;
+	}
+
+	/**
+	 * Returns an iterator to all transactions, oldest first.
+	 * 
+	 * @return iterator to the transactions
+	 */
+	@Override
+	public Iterator<Transaction> iterator() {
+		Contents snapshot = contents;
+		return new Slice(snapshot, 0, snapshot.times.length);
+	}
+
+	/**
+	 * Returns an iterator to the transactions whose time is within the given
+	 * range, oldest first.
+	 * 
+	 * @param from the start of the range in epoch milliseconds, inclusive
+	 * @param to   the end of the range in epoch milliseconds, inclusive
+	 * @return iterator to the transactions in the range
+	 */
+	public Iterator<Transaction> between(long from, long to) {
+		Contents snapshot = contents;
+		int start = snapshot.lowerBound(from);
+		int end = snapshot.upperBound(to);
+		return new Slice(snapshot, start, Math.max(start, end));
+	}
+
+	/**
+	 * Converts a pair of dates to a range of epoch milliseconds. As in
+	 * Transaction.betweenDates, equal start and end dates select the whole day.
+	 * 
+	 * @param startDate the start date of the range
+	 * @param endDate   the end date of the range
+	 * @return the inclusive start and end of the range
+	 */
+	static long[] range(Calendar startDate, Calendar endDate) {
+		if (startDate.compareTo(endDate) == 0) {
+			Calendar day = (Calendar) startDate.clone();
+			day.set(Calendar.HOUR_OF_DAY, 0);
+			day.set(Calendar.MINUTE, 0);
+			day.set(Calendar.SECOND, 0);
+			day.set(Calendar.MILLISECOND, 0);
+			long from = day.getTimeInMillis();
+			day.add(Calendar.DATE, 1);
+			return new long[] { from, day.getTimeInMillis() - 1 };
+		}
+		return new long[] { startDate.getTimeInMillis(),
+				endDate.getTimeInMillis() };
+	}
+
+	/**
+	 * The transactions and their times at one point in time, sorted by time.
+	 */
+	private static class Contents {
+		private final long[] times;
+		private final Transaction[] transactions;
+
+		private Contents(long[] times, Transaction[] transactions) {
+			this.times = times;
+			this.transactions = transactions;
+		}
+
+		/**
+		 * Finds the first index whose time is not before the given time.
+		 */
+		private int lowerBound(long time) {
+			int low = 0;
+			int high = times.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (times[middle] < time) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Finds the first index whose time is after the given time.
+		 */
+		private int upperBound(long time) {
+			int low = 0;
+			int high = times.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (times[middle] <= time) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * Iterates over a range of indexes of the transaction array.
+	 */
+	private static class Slice implements Iterator<Transaction> {
+		private final Transaction[] items;
+		private int index;
+		private final int end;
+
+		private Slice(Contents contents, int start, int end) {
+			this.items = contents.transactions;
+			this.index = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < end;
+		}
+
+		@Override
+		public Transaction next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No such element");
+			}
+			return items[index++];
+		}
+	}
+}
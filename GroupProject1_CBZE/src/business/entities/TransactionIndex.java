@@ -0,0 +1,110 @@
+package business.entities;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A store-wide index of transactions, bucketed by day. A query between two
+ * dates only visits the buckets of the days within the range. The methods are
+ * synchronized on the index.
+ * 
+ */
+public class TransactionIndex {
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+	private NavigableMap<Long, List<Transaction>> days =
+			new TreeMap<Long, List<Transaction>>();
+	private int size;
+
+	/**
+	 * Returns the bucket key of a time, the number of days since the epoch.
+	 */
+	private static long dayOf(long time) {
+		return Math.floorDiv(time, DAY_MILLIS);
+	}
+
+	/**
+	 * Adds a transaction to the bucket of its day.
+	 * 
+	 * @param transaction the transaction to be added
+	 */
+	public synchronized void add(Transaction transaction) {
+		long day = dayOf(transaction.getTime());
+		List<Transaction> bucket = days.get(day);
+		if (bucket == null) {
+			bucket = new ArrayList<Transaction>();
+			days.put(day, bucket);
+		}
+		bucket.add(transaction);
+		size++;
+	}
+
+	/**
+	 * Removes a transaction from the bucket of its day.
+	 * 
+	 * @param transaction the transaction to be removed
+	 * @return true iff the transaction was found
+	 */
+	public synchronized boolean remove(Transaction transaction) {
+		long day = dayOf(transaction.getTime());
+		List<Transaction> bucket = days.get(day);
+		if (bucket == null) {
+			return false;
+		}
+		for (int index = bucket.size() - 1; index >= 0; index--) {
+			if (bucket.get(index) == transaction) {
+				bucket.remove(index);
+				if (bucket.isEmpty()) {
+					days.remove(day);
+				}
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Getter for the number of transactions.
+	 * 
+	 * @return size
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Returns an iterator to the transactions between two dates, by day.
+	 * Within a day, the transactions are in the order they were added. As in
+	 * Transaction.betweenDates, equal start and end dates select the whole day.
+	 * 
+	 * @param startDate the start date of the period
+	 * @param endDate   the end date of the period
+	 * @return iterator to the transactions
+	 */
+	public synchronized Iterator<Transaction> between(Calendar startDate,
+			Calendar endDate) {
+		long[] range = TransactionHistory.range(startDate, endDate);
+		List<Transaction> matches = new ArrayList<Transaction>();
+		if (range[0] > range[1]) {
+			return matches.iterator();
+		}
+		for (List<Transaction> bucket : days
+				.subMap(dayOf(range[0]), true, dayOf(range[1]), true)
+				.values()) {
+			for (Transaction transaction : bucket) {
+				long time = transaction.getTime();
+				if (time >= range[0] && time <= range[1]) {
+					matches.add(transaction);
+				}
+			}
+		}
+		return matches.iterator();
+	}
+}
@@ -35,6 +35,25 @@ public class TransactionItem implements Serializable {
 		this.total = price * quantity;
 	}
 
+	/**
+	 * Recreates a TransactionItem as it was recorded, such as one read back
+	 * from a snapshot. The product need not be in the catalog any more.
+	 * 
+	 * @param id       id of the product
+	 * @param name     name of the product
+	 * @param quantity quantity of items that comprise TransactionItem
+	 * @param price    price of one item
+	 * @param total    total for the itemization
+	 */
+	public TransactionItem(String id, String name, int quantity, double price,
+			double total) {
+		this.name = name;
+		this.id = id;
+		this.quantity = quantity;
+		this.price = price;
+		this.total = total;
+	}
+
 	/**
 	 * Getter for TransactionItem name.
 	 * 
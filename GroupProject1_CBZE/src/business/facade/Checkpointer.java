@@ -0,0 +1,78 @@
+package business.facade;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the checkpoints of a journaled store. A daemon thread looks at
+ * the journal a few times a second and starts a checkpoint once the records in
+ * the current segment reach a given size, or once a given time has passed
+ * since the last checkpoint and there are records at all. The checkpoint runs
+ * on this thread, while the store goes on serving operations.
+ *
+ * The size and the time are set at startup with the system properties
+ * store.checkpoint.bytes (64 MB by default) and store.checkpoint.seconds (300
+ * by default).
+ *
+ */
+class Checkpointer {
+	static final String BYTES_PROPERTY = "store.checkpoint.bytes";
+	static final String SECONDS_PROPERTY = "store.checkpoint.seconds";
+	private static final long DEFAULT_BYTES = 64L << 20;
+	private static final long DEFAULT_SECONDS = 300;
+	private static final long POLL_MILLIS = 100;
+	private final Journal journal;
+	private final Runnable checkpoint;
+	private final long maxBytes;
+	private final long intervalNanos;
+	private volatile boolean closed;
+
+	/**
+	 * Starts the thread.
+	 *
+	 * @param journal    the journal whose size is watched
+	 * @param checkpoint writes a checkpoint
+	 */
+	Checkpointer(Journal journal, Runnable checkpoint) {
+		this.journal = journal;
+		this.checkpoint = checkpoint;
+		maxBytes = Long.getLong(BYTES_PROPERTY, DEFAULT_BYTES);
+		intervalNanos = TimeUnit.SECONDS
+				.toNanos(Long.getLong(SECONDS_PROPERTY, DEFAULT_SECONDS));
+		Thread thread = new Thread(this::run, "checkpointer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops scheduling checkpoints. The thread is not interrupted, as that
+	 * would close the files a checkpoint is writing.
+	 */
+	void close() {
+		closed = true;
+	}
+
+	private void run() {
+		long last = System.nanoTime();
+		while (!closed) {
+			try {
+				Thread.sleep(POLL_MILLIS);
+			} catch (InterruptedException ie) {
+				return;
+			}
+			long length = journal.getLength();
+			if (closed || length == 0 || length < maxBytes
+					&& System.nanoTime() - last < intervalNanos) {
+				continue;
+			}
+			try {
+				checkpoint.run();
+			} catch (RuntimeException re) {
+				re.printStackTrace();
+			}
+			last = System.nanoTime();
+		}
+	}
+}
@@ -43,6 +43,13 @@ public abstract class DataTransfer {
 		reset();
 	}
 
+	/**
+	 * Called before any field is changed. Subclasses whose objects become
+	 * immutable override it to reject the change.
+	 */
+	protected void checkModifiable() {
+	}
+
 	/*
 	 * Getters and setters for all fields
 	 */
@@ -52,6 +59,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setProductId(String productId) {
+		checkModifiable();
 		this.productId = productId;
 	}
 
@@ -60,6 +68,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setProductName(String productName) {
+		checkModifiable();
 		this.productName = productName;
 	}
 
@@ -68,6 +77,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setProductStock(String productStock) {
+		checkModifiable();
 		this.productStock = productStock;
 	}
 
@@ -76,6 +86,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setProductPrice(String productPrice) {
+		checkModifiable();
 		this.productPrice = productPrice;
 	}
 
@@ -84,6 +95,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setProductReorderLevel(String productReorderLevel) {
+		checkModifiable();
 		this.productReorderLevel = productReorderLevel;
 	}
 
@@ -92,6 +104,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setMemberId(String memberId) {
+		checkModifiable();
 		this.memberId = memberId;
 	}
 
@@ -104,6 +117,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setMemberName(String memberName) {
+		checkModifiable();
 		this.memberName = memberName;
 	}
 
@@ -112,6 +126,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setMemberPhone(String memberPhone) {
+		checkModifiable();
 		this.memberPhone = memberPhone;
 	}
 
@@ -120,6 +135,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setMemberAddress(String memberAddress) {
+		checkModifiable();
 		this.memberAddress = memberAddress;
 	}
 
@@ -128,10 +144,12 @@ public abstract class DataTransfer {
 	}
 
 	public void setMemberDateJoined(String memberDateJoined) {
+		checkModifiable();
 		this.memberDateJoined = memberDateJoined;
 	}
 
 	public void setMemberFeePaid(String memberFeePaid) {
+		checkModifiable();
 		this.memberFeePaid = memberFeePaid;
 	}
 
@@ -140,6 +158,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setItemTotal(String itemTotal) {
+		checkModifiable();
 		this.itemTotal = itemTotal;
 	}
 
@@ -148,6 +167,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setTransactionTotal(String transactionTotal) {
+		checkModifiable();
 		this.transactionTotal = transactionTotal;
 	}
 
@@ -156,6 +176,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setTransactionChange(String transactionChange) {
+		checkModifiable();
 		this.transactionChange = transactionChange;
 	}
 
@@ -164,6 +185,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setOrderId(String orderId) {
+		checkModifiable();
 		this.orderId = orderId;
 	}
 
@@ -172,6 +194,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setOrderProductId(String orderProductId) {
+		checkModifiable();
 		this.orderProductId = orderProductId;
 	}
 
@@ -180,6 +203,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setOrderProductName(String orderProductName) {
+		checkModifiable();
 		this.orderProductName = orderProductName;
 	}
 
@@ -188,6 +212,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setOrderQuantity(String orderQuantity) {
+		checkModifiable();
 		this.orderQuantity = orderQuantity;
 	}
 
@@ -196,6 +221,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setOrderDate(String orderDate) {
+		checkModifiable();
 		this.orderDate = orderDate;
 	}
 
@@ -204,6 +230,7 @@ public abstract class DataTransfer {
 	}
 
 	public void setItemQuantity(String itemQuantity) {
+		checkModifiable();
 		this.itemQuantity = itemQuantity;
 	}
 
@@ -213,6 +240,7 @@ public abstract class DataTransfer {
 	 * @param member the member whose fields should be copied.
 	 */
 	public void setMemberFields(Member member) {
+		checkModifiable();
 		memberId = member.getId();
 		memberName = member.getName();
 		memberPhone = member.getPhone();
@@ -229,6 +257,7 @@ public abstract class DataTransfer {
 	 * @param Product the Product whose fields should be copied.
 	 */
 	public void setProductFields(Product product) {
+		checkModifiable();
 		productId = product.getId();
 		productName = product.getName();
 		if (product.getStock() != 0) {
@@ -246,6 +275,7 @@ public abstract class DataTransfer {
 	 * @param order the order whose fields should be copied.
 	 */
 	public void setOrderFields(Order order) {
+		checkModifiable();
 		orderId = order.getId();
 		orderProductId = order.getProductId();
 		orderProductName = order.getProductName();
@@ -257,6 +287,7 @@ public abstract class DataTransfer {
 	 * Sets all String fields to "none"
 	 */
 	public void reset() {
+		checkModifiable();
 		productId = "none";
 		productName = "none";
 		productStock = "none";
@@ -0,0 +1,548 @@
+package business.facade;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the changes made to a Store since its last
+ * snapshot. Each record is framed by its length and a CRC32 checksum, so that
+ * a record torn by a crash is recognized. Only the end of the newest segment
+ * can be torn that way, as a crash interrupted the last write; such a tail is
+ * ignored and cut off. A damaged record anywhere else means the journal
+ * itself is damaged, and replaying it fails rather than drop the intact
+ * records that follow.
+ *
+ * The journal is kept in segments, files named after the journal and the
+ * generation of the snapshot the segment continues, its base. Records are
+ * appended to the newest segment. A checkpoint moves the journal on to a new
+ * segment whose base is the generation of the snapshot it is about to write;
+ * once that snapshot is written, the older segments are no longer needed.
+ *
+ * How often the journal is forced to disk is chosen at startup with the system
+ * property store.journal: "off" (the default) keeps no journal, "none" leaves
+ * it to the operating system, "batch" collects the records in memory and
+ * writes and forces them in the background every few milliseconds, and
+ * "always" forces the journal before each operation returns. Under "always",
+ * operations waiting at the same time share a single force. Under "batch",
+ * the records still in memory are written when the JVM shuts down, so only a
+ * crash loses them.
+ *
+ */
+class Journal implements Closeable {
+	static final String PROPERTY = "store.journal";
+	private static final int MAGIC = 0x534A4E4C;
+	private static final int VERSION = 1;
+	private static final int HEADER_LENGTH = 16;
+	private static final int MAX_RECORD_LENGTH = 1 << 20;
+	private static final long BATCH_INTERVAL = 20;
+	private final String name;
+	private final Policy policy;
+	private final Buffer buffer = new Buffer();
+	private final Buffer pending = new Buffer();
+	private final DataOutputStream output = new DataOutputStream(buffer);
+	private final CRC32 crc = new CRC32();
+	private final Object forceLock = new Object();
+	private final Thread forcer;
+	private final Thread closer;
+	private FileChannel channel;
+	private long base;
+	private volatile long written;
+	private volatile long flushed;
+	private volatile long durable;
+	private volatile boolean closed;
+
+	/**
+	 * When the journal is forced to disk.
+	 */
+	enum Policy {
+		OFF, NONE, BATCH, ALWAYS;
+
+		/**
+		 * Reads the policy from the system property store.journal.
+		 *
+		 * @return the policy
+		 * @throws IllegalArgumentException if the property names no policy
+		 */
+		static Policy fromProperty() {
+			String name = System.getProperty(PROPERTY, "off");
+			for (Policy policy : values()) {
+				if (policy.name().equalsIgnoreCase(name)) {
+					return policy;
+				}
+			}
+			throw new IllegalArgumentException(
+					"Unknown journal policy " + name);
+		}
+	}
+
+	/**
+	 * Writes the contents of a record.
+	 */
+	interface Record {
+		/**
+		 * Writes the record.
+		 *
+		 * @param output where the record goes
+		 * @throws IOException if the record cannot be written
+		 */
+		void write(DataOutput output) throws IOException;
+	}
+
+	/**
+	 * Applies the records read back from a journal.
+	 */
+	interface Reader {
+		/**
+		 * Applies a record.
+		 *
+		 * @param type  the type of the record
+		 * @param input the contents of the record
+		 * @throws IOException if the record cannot be read
+		 */
+		void read(byte type, DataInput input) throws IOException;
+	}
+
+	/**
+	 * A byte array stream whose array can be framed in place.
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+		private byte[] array() {
+			return buf;
+		}
+	}
+
+	private Journal(String name, Policy policy, long base,
+			FileChannel channel, long length) {
+		this.name = name;
+		this.policy = policy;
+		this.base = base;
+		this.channel = channel;
+		written = length;
+		flushed = length;
+		durable = length;
+		if (policy == Policy.BATCH) {
+			forcer = new Thread(this::forcePeriodically, "journal-forcer");
+			forcer.setDaemon(true);
+			forcer.start();
+			closer = new Thread(this::closeQuietly, "journal-closer");
+			Runtime.getRuntime().addShutdownHook(closer);
+		} else {
+			forcer = null;
+			closer = null;
+		}
+	}
+
+	/**
+	 * Starts a journal with an empty segment, replacing whatever the segment
+	 * file held.
+	 *
+	 * @param name   the name of the journal
+	 * @param policy when the journal is forced to disk
+	 * @param base   the generation of the snapshot the segment continues
+	 * @return the journal
+	 * @throws IOException if the file cannot be written
+	 */
+	static Journal create(String name, Policy policy, long base)
+			throws IOException {
+		return new Journal(name, policy, base, start(name, base),
+				HEADER_LENGTH);
+	}
+
+	/**
+	 * Continues a journal whose newest segment has been replayed. Anything
+	 * after the last intact record is cut off.
+	 *
+	 * @param name   the name of the journal
+	 * @param policy when the journal is forced to disk
+	 * @param base   the base of the segment
+	 * @param end    the length of the segment up to its last intact record,
+	 *               as returned by replay
+	 * @return the journal
+	 * @throws IOException if the file cannot be written
+	 */
+	static Journal resume(String name, Policy policy, long base, long end)
+			throws IOException {
+		FileChannel channel = FileChannel.open(segment(name, base),
+				StandardOpenOption.WRITE);
+		channel.truncate(end);
+		channel.force(true);
+		return new Journal(name, policy, base, channel, end);
+	}
+
+	/**
+	 * Creates a segment file holding just the header, and forces it to disk.
+	 */
+	private static FileChannel start(String name, long base)
+			throws IOException {
+		FileChannel channel = FileChannel.open(segment(name, base),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(MAGIC).putInt(VERSION).putLong(base).flip();
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+		channel.force(true);
+		return channel;
+	}
+
+	/**
+	 * Moves the journal on to a new segment. The records appended so far are
+	 * on disk in the previous segment when the method returns.
+	 *
+	 * @param base the base of the new segment, greater than that of the
+	 *             current one
+	 * @throws IOException if a segment cannot be written
+	 */
+	void rotate(long base) throws IOException {
+		synchronized (forceLock) {
+			synchronized (this) {
+				writePending();
+				channel.force(false);
+				FileChannel next = start(name, base);
+				channel.close();
+				channel = next;
+				this.base = base;
+				written = HEADER_LENGTH;
+				flushed = HEADER_LENGTH;
+				durable = HEADER_LENGTH;
+			}
+		}
+	}
+
+	/**
+	 * Getter for the base of the segment records are appended to.
+	 *
+	 * @return base generation
+	 */
+	synchronized long getBase() {
+		return base;
+	}
+
+	/**
+	 * Getter for the size of the records in the current segment.
+	 *
+	 * @return size in bytes
+	 */
+	long getLength() {
+		return written - HEADER_LENGTH;
+	}
+
+	/**
+	 * Appends a record with a single write, or under the policy "batch" to the
+	 * records waiting to be written.
+	 *
+	 * @param type   the type of the record
+	 * @param record writes the contents of the record
+	 * @throws IOException if the record cannot be written
+	 */
+	synchronized void append(byte type, Record record) throws IOException {
+		buffer.reset();
+		output.writeInt(0);
+		output.writeByte(type);
+		record.write(output);
+		int length = buffer.size() - Integer.BYTES;
+		output.writeInt(0);
+		byte[] bytes = buffer.array();
+		crc.reset();
+		crc.update(bytes, Integer.BYTES, length);
+		ByteBuffer frame = ByteBuffer.wrap(bytes, 0, buffer.size());
+		frame.putInt(0, length);
+		frame.putInt(Integer.BYTES + length, (int) crc.getValue());
+		if (policy == Policy.BATCH) {
+			pending.write(bytes, 0, buffer.size());
+			written += buffer.size();
+		} else {
+			write(frame);
+		}
+	}
+
+	/**
+	 * Writes the records waiting under the policy "batch".
+	 */
+	private synchronized void writePending() throws IOException {
+		if (pending.size() > 0) {
+			write(ByteBuffer.wrap(pending.array(), 0, pending.size()));
+			pending.reset();
+		}
+	}
+
+	private void write(ByteBuffer bytes) throws IOException {
+		long position = flushed;
+		while (bytes.hasRemaining()) {
+			position += channel.write(bytes, position);
+		}
+		written = position;
+		flushed = position;
+	}
+
+	/**
+	 * Called when an operation completes. Under the policy "always", returns
+	 * once every record appended so far is on disk.
+	 *
+	 * @throws IOException if the journal cannot be forced
+	 */
+	void commit() throws IOException {
+		if (policy == Policy.ALWAYS) {
+			force(written);
+		}
+	}
+
+	/**
+	 * Forces the journal to disk unless the given length is on disk already.
+	 * The force covers the records written while the caller waited for the
+	 * lock, so those callers do not force again.
+	 */
+	private void force(long length) throws IOException {
+		if (durable >= length) {
+			return;
+		}
+		synchronized (forceLock) {
+			if (durable < length) {
+				long end = flushed;
+				channel.force(false);
+				durable = end;
+			}
+		}
+	}
+
+	private void forcePeriodically() {
+		while (!closed) {
+			try {
+				Thread.sleep(BATCH_INTERVAL);
+				writePending();
+				force(flushed);
+			} catch (InterruptedException ie) {
+				return;
+			} catch (IOException ioe) {
+				if (!closed) {
+					ioe.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forces the journal to disk and closes it.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		if (closer != null && Thread.currentThread() != closer) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(closer);
+			} catch (IllegalStateException ise) {
+				// shutting down; the hook closes the journal as well
+			}
+		}
+		synchronized (forceLock) {
+			synchronized (this) {
+				if (channel.isOpen()) {
+					writePending();
+					channel.force(false);
+					channel.close();
+				}
+			}
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+		}
+	}
+
+	/**
+	 * Finds the segments of a journal in the working directory.
+	 *
+	 * @param name the name of the journal
+	 * @return the bases of the segments, in ascending order
+	 * @throws IOException if the directory cannot be read
+	 */
+	static List<Long> segments(String name) throws IOException {
+		List<Long> bases = new ArrayList<Long>();
+		String prefix = name + ".";
+		try (DirectoryStream<Path> files = Files
+				.newDirectoryStream(Paths.get("."), prefix + "*")) {
+			for (Path file : files) {
+				String suffix = file.getFileName().toString()
+						.substring(prefix.length());
+				try {
+					bases.add(Long.parseLong(suffix));
+				} catch (NumberFormatException nfe) {
+					// not a segment
+				}
+			}
+		}
+		Collections.sort(bases);
+		return bases;
+	}
+
+	/**
+	 * Getter for the file of a segment.
+	 *
+	 * @param name the name of the journal
+	 * @param base the base of the segment
+	 * @return the path of the segment file
+	 */
+	static Path segment(String name, long base) {
+		return Paths.get(name + "." + base);
+	}
+
+	/**
+	 * Reads back the records of a segment. In the newest segment, a torn tail
+	 * left by a crash ends the replay: a record that runs up to or past the
+	 * end of the file, or one followed by nothing but zeros, which is what a
+	 * file extended by an interrupted write holds.
+	 *
+	 * @param name   the name of the journal
+	 * @param base   the base of the segment
+	 * @param newest whether the segment is the newest one, the only one whose
+	 *               end may be torn
+	 * @param reader applies the records
+	 * @return the length of the segment up to its last intact record, or -1
+	 *         if the segment is missing, or is the newest and was torn before
+	 *         its header was complete
+	 * @throws IOException if the file cannot be read, the segment is damaged
+	 *                     other than by a torn tail, or the reader fails
+	 */
+	static long replay(String name, long base, boolean newest, Reader reader)
+			throws IOException {
+		Path path = segment(name, base);
+		if (!Files.exists(path)) {
+			return -1;
+		}
+		long size = Files.size(path);
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(path)))) {
+			if (size < HEADER_LENGTH || input.readInt() != MAGIC
+					|| input.readInt() != VERSION
+					|| input.readLong() != base) {
+				if (newest && (size < HEADER_LENGTH
+						|| isTornTail(path, 0, size, -1))) {
+					return -1;
+				}
+				throw new IOException("Journal segment " + path
+						+ " has a damaged header");
+			}
+			long end = HEADER_LENGTH;
+			CRC32 check = new CRC32();
+			while (end < size) {
+				int length = -1;
+				byte[] record = null;
+				try {
+					length = input.readInt();
+					if (length >= 1 && length <= MAX_RECORD_LENGTH) {
+						record = new byte[length];
+						input.readFully(record);
+						check.reset();
+						check.update(record);
+						if (input.readInt() != (int) check.getValue()) {
+							record = null;
+						}
+					}
+				} catch (EOFException eofe) {
+					record = null;
+				}
+				if (record == null) {
+					if (newest && isTornTail(path, end, size, length)) {
+						return end;
+					}
+					throw new IOException("Journal segment " + path
+							+ " is damaged at offset " + end);
+				}
+				ByteArrayInputStream contents = new ByteArrayInputStream(record,
+						1, record.length - 1);
+				reader.read(record[0], new DataInputStream(contents));
+				end += 2 * Integer.BYTES + record.length;
+			}
+			return end;
+		}
+	}
+
+	/**
+	 * Tells whether a record that failed to read is the tail of the segment
+	 * torn by a crash: too short for any record, running up to or past the
+	 * end of the file, or followed by nothing but zeros.
+	 *
+	 * @param path   the segment file
+	 * @param start  where the record starts
+	 * @param size   the size of the file
+	 * @param length the length the record claims, -1 if it could not be read
+	 */
+	private static boolean isTornTail(Path path, long start, long size,
+			int length) throws IOException {
+		if (size - start <= 2 * Integer.BYTES || length >= 1
+				&& length <= MAX_RECORD_LENGTH
+				&& start + 2 * Integer.BYTES + length >= size) {
+			return true;
+		}
+		try (FileChannel channel = FileChannel.open(path)) {
+			ByteBuffer bytes = ByteBuffer.allocate(1 << 16);
+			for (long position = start; position < size;) {
+				bytes.clear();
+				int read = channel.read(bytes, position);
+				if (read < 0) {
+					break;
+				}
+				for (int index = 0; index < read; index++) {
+					if (bytes.get(index) != 0) {
+						return false;
+					}
+				}
+				position += read;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes a string that may be null.
+	 *
+	 * @param output where the string goes
+	 * @param string the string
+	 * @throws IOException if the string cannot be written
+	 */
+	static void writeString(DataOutput output, String string)
+			throws IOException {
+		output.writeBoolean(string != null);
+		if (string != null) {
+			output.writeUTF(string);
+		}
+	}
+
+	/**
+	 * Reads a string written by writeString.
+	 *
+	 * @param input where the string comes from
+	 * @return the string, possibly null
+	 * @throws IOException if the string cannot be read
+	 */
+	static String readString(DataInput input) throws IOException {
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+}
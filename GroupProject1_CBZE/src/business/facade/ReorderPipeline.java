@@ -0,0 +1,139 @@
+package business.facade;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import business.entities.Product;
+
+/**
+ * Takes reorders off the checkout path. A sale that brings a product to its
+ * reorder level submits an event to a bounded queue and returns; a daemon
+ * worker drains the queue and hands the events to the reorder stage in
+ * batches. When the queue is full, submit() refuses the event and the caller
+ * reorders at once.
+ *
+ */
+class ReorderPipeline {
+	private final BlockingQueue<Event> queue;
+	private final int batchSize;
+	private final Stage stage;
+	private final Thread worker;
+
+	/**
+	 * The stage that places or coalesces the orders.
+	 */
+	interface Stage {
+		/**
+		 * Processes a batch of reorders.
+		 *
+		 * @param events the reorders, oldest first
+		 */
+		void reorder(List<Event> events);
+	}
+
+	/**
+	 * A product that reached its reorder level, and the quantity sold.
+	 */
+	static class Event {
+		private final Product product;
+		private final int demand;
+		private final CountDownLatch flushed;
+
+		private Event(Product product, int demand, CountDownLatch flushed) {
+			this.product = product;
+			this.demand = demand;
+			this.flushed = flushed;
+		}
+
+		Product getProduct() {
+			return product;
+		}
+
+		int getDemand() {
+			return demand;
+		}
+	}
+
+	/**
+	 * Creates the queue and starts the worker.
+	 *
+	 * @param capacity  the number of events the queue holds
+	 * @param batchSize the largest number of events handed over at once
+	 * @param stage     the stage processing the events
+	 */
+	ReorderPipeline(int capacity, int batchSize, Stage stage) {
+		this.queue = new ArrayBlockingQueue<Event>(capacity);
+		this.batchSize = batchSize;
+		this.stage = stage;
+		worker = new Thread(this::run, "reorder-pipeline");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Queues a reorder without waiting.
+	 *
+	 * @param product the product to be reordered
+	 * @param demand  the quantity sold
+	 * @return true iff the reorder was queued, false if the queue is full
+	 */
+	boolean submit(Product product, int demand) {
+		return queue.offer(new Event(product, demand, null));
+	}
+
+	/**
+	 * Waits until every reorder queued before the call has been processed.
+	 *
+	 * @throws InterruptedException if the wait is interrupted
+	 */
+	void flush() throws InterruptedException {
+		CountDownLatch flushed = new CountDownLatch(1);
+		queue.put(new Event(null, 0, flushed));
+		flushed.await();
+	}
+
+	/**
+	 * Stops the worker. Reorders still queued are dropped.
+	 */
+	void close() {
+		worker.interrupt();
+	}
+
+	private void run() {
+		List<Event> batch = new ArrayList<Event>(batchSize);
+		List<Event> reorders = new ArrayList<Event>(batchSize);
+		while (true) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException ie) {
+				return;
+			}
+			queue.drainTo(batch, batchSize - 1);
+			for (Event event : batch) {
+				if (event.product != null) {
+					reorders.add(event);
+				}
+			}
+			try {
+				if (!reorders.isEmpty()) {
+					stage.reorder(reorders);
+				}
+			} catch (RuntimeException re) {
+				re.printStackTrace();
+			}
+			for (Event event : batch) {
+				if (event.flushed != null) {
+					event.flushed.countDown();
+				}
+			}
+			batch.clear();
+			reorders.clear();
+		}
+	}
+}
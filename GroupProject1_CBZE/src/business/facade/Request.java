@@ -3,44 +3,80 @@ package business.facade;
 /**
  * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
  */
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This class is used for requesting many of the results of the store system's
- * business logic to user interface. It is a singleton
- * 
+ * business logic to user interface.
+ *
  * At present, the Request object transfers values for selected fields of
  * Member, Product, TransactionItem and Order. The applicable fields are found
  * in DataTransfer.
  *
+ * Each call to Store should carry a request of its own, assembled with a
+ * Builder. Built requests are immutable, so any number of sessions can call
+ * Store at the same time. The mutable request returned by instance() is kept
+ * for existing callers; it is confined to the calling thread.
+ *
  */
 public class Request extends DataTransfer {
-	private static Request request;
+	private static final ThreadLocal<Request> request = ThreadLocal
+			.withInitial(Request::new);
 	private Calendar startDate;
 	private Calendar endDate;
+	private int limit;
+	private Map<String, Integer> basket = new LinkedHashMap<String, Integer>();
+	private Set<String> shipment = new LinkedHashSet<String>();
+	private boolean immutable;
 
 	/**
-	 * This is a singleton class. Hence the private constructor.
+	 * Requests are obtained through builder() or instance(). Hence the private
+	 * constructor.
 	 */
 	private Request() {
 
 	}
 
 	/**
-	 * Returns the only instance of the class.
-	 * 
-	 * @return the only instance
+	 * Returns the mutable instance of the calling thread.
+	 *
+	 * @return the instance of the thread
 	 */
 	public static Request instance() {
-		if (request == null) {
-			request = new Request();
+		return request.get();
+	}
+
+	/**
+	 * Returns a builder for a new immutable request.
+	 *
+	 * @return the builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Rejects changes once the request has been built.
+	 */
+	@Override
+	protected void checkModifiable() {
+		if (immutable) {
+			throw new UnsupportedOperationException(
+					"A built request cannot be changed");
 		}
-		return request;
 	}
 
 	/**
 	 * Getter for start date.
-	 * 
+	 *
 	 * @return startDate
 	 */
 	public Calendar getStartDate() {
@@ -49,16 +85,17 @@ public class Request extends DataTransfer {
 
 	/**
 	 * Setter for start date.
-	 * 
+	 *
 	 * @param startDate
 	 */
 	public void setStartDate(Calendar startDate) {
+		checkModifiable();
 		this.startDate = startDate;
 	}
 
 	/**
 	 * Getter for end date.
-	 * 
+	 *
 	 * @return endDate
 	 */
 	public Calendar getEndDate() {
@@ -67,10 +104,217 @@ public class Request extends DataTransfer {
 
 	/**
 	 * Setter for end date.
-	 * 
+	 *
 	 * @param endDate
 	 */
 	public void setEndDate(Calendar endDate) {
+		checkModifiable();
 		this.endDate = endDate;
 	}
+
+	/**
+	 * Getter for the maximum number of results of a search.
+	 *
+	 * @return limit, 0 or less for no limit
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Setter for the maximum number of results of a search.
+	 *
+	 * @param limit
+	 */
+	public void setLimit(int limit) {
+		checkModifiable();
+		this.limit = limit;
+	}
+
+	/**
+	 * Adds a line to the basket of a batch checkout. Lines for the same
+	 * product are merged.
+	 *
+	 * @param productId the id of the product
+	 * @param quantity  the quantity of the product
+	 */
+	public void addBasketLine(String productId, int quantity) {
+		checkModifiable();
+		basket.merge(productId, quantity, Integer::sum);
+	}
+
+	/**
+	 * Returns the basket of a batch checkout.
+	 *
+	 * @return the quantities by product id, in the order the products were
+	 *         added
+	 */
+	public Map<String, Integer> getBasket() {
+		return Collections.unmodifiableMap(basket);
+	}
+
+	/**
+	 * Adds an order to the shipment of a batch receive. An order listed twice
+	 * is received once.
+	 *
+	 * @param orderId the id of the order
+	 */
+	public void addShipmentOrder(String orderId) {
+		checkModifiable();
+		shipment.add(orderId);
+	}
+
+	/**
+	 * Returns the shipment of a batch receive.
+	 *
+	 * @return the order ids, in the order they were added
+	 */
+	public Set<String> getShipment() {
+		return Collections.unmodifiableSet(shipment);
+	}
+
+	/**
+	 * Assembles a request one field at a time. Calling build() hands out the
+	 * request, which cannot be changed afterwards; a builder builds a single
+	 * request.
+	 *
+	 */
+	public static class Builder {
+		private Request request = new Request();
+
+		/**
+		 * Returns the request under construction.
+		 */
+		private Request target() {
+			if (request == null) {
+				throw new IllegalStateException("Request already built");
+			}
+			return request;
+		}
+
+		public Builder memberId(String memberId) {
+			target().setMemberId(memberId);
+			return this;
+		}
+
+		public Builder memberName(String memberName) {
+			target().setMemberName(memberName);
+			return this;
+		}
+
+		public Builder memberAddress(String memberAddress) {
+			target().setMemberAddress(memberAddress);
+			return this;
+		}
+
+		public Builder memberPhone(String memberPhone) {
+			target().setMemberPhone(memberPhone);
+			return this;
+		}
+
+		public Builder memberFeePaid(String memberFeePaid) {
+			target().setMemberFeePaid(memberFeePaid);
+			return this;
+		}
+
+		public Builder productId(String productId) {
+			target().setProductId(productId);
+			return this;
+		}
+
+		public Builder productName(String productName) {
+			target().setProductName(productName);
+			return this;
+		}
+
+		public Builder productStock(String productStock) {
+			target().setProductStock(productStock);
+			return this;
+		}
+
+		public Builder productPrice(String productPrice) {
+			target().setProductPrice(productPrice);
+			return this;
+		}
+
+		public Builder productReorderLevel(String productReorderLevel) {
+			target().setProductReorderLevel(productReorderLevel);
+			return this;
+		}
+
+		public Builder itemQuantity(String itemQuantity) {
+			target().setItemQuantity(itemQuantity);
+			return this;
+		}
+
+		public Builder transactionChange(String transactionChange) {
+			target().setTransactionChange(transactionChange);
+			return this;
+		}
+
+		public Builder orderId(String orderId) {
+			target().setOrderId(orderId);
+			return this;
+		}
+
+		public Builder startDate(Calendar startDate) {
+			target().setStartDate(startDate);
+			return this;
+		}
+
+		public Builder endDate(Calendar endDate) {
+			target().setEndDate(endDate);
+			return this;
+		}
+
+		public Builder limit(int limit) {
+			target().setLimit(limit);
+			return this;
+		}
+
+		public Builder basketLine(String productId, int quantity) {
+			target().addBasketLine(productId, quantity);
+			return this;
+		}
+
+		public Builder shipmentOrder(String orderId) {
+			target().addShipmentOrder(orderId);
+			return this;
+		}
+
+		/**
+		 * Adds the orders listed in a shipment manifest. The manifest is a text
+		 * file with one order id per line; blank lines and lines starting with
+		 * # are skipped.
+		 *
+		 * @param fileName the name of the manifest
+		 * @return this builder
+		 * @throws IOException if the manifest cannot be read
+		 */
+		public Builder shipmentManifest(String fileName) throws IOException {
+			Request target = target();
+			try (BufferedReader reader = new BufferedReader(
+					new FileReader(fileName))) {
+				for (String line; (line = reader.readLine()) != null;) {
+					line = line.trim();
+					if (!line.isEmpty() && !line.startsWith("#")) {
+						target.addShipmentOrder(line);
+					}
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Finishes the request.
+		 *
+		 * @return the immutable request
+		 */
+		public Request build() {
+			Request built = target();
+			built.immutable = true;
+			request = null;
+			return built;
+		}
+	}
 }
@@ -1,12 +1,18 @@
 package business.facade;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
 /**
  * This class is used for returning many of the results of the store system's
  * business logic to user interface.
  * 
  * At present, the Result object returns an int code, plus values of selected
  * fields of Member, Product, Transaction/TransactionItem and Order. They are
- * the fields found in DataTransfer.
+ * the fields found in DataTransfer. Batch operations return one consolidated
+ * Result, with a detail Result for every line of the batch.
  * 
  * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
  *
@@ -22,8 +28,12 @@ public class Result extends DataTransfer {
 	public static final int DUPLICATE_ID = 8;
 	public static final int INSUFFICIENT_FUNDS = 9;
 	public static final int TRANSACTION_COMPLETE = 10;
+	public static final int ORDER_COALESCED = 11;
+	public static final int REORDER_QUEUED = 12;
+	public static final int NO_TRANSACTION = 13;
 
 	private int resultCode;
+	private List<Result> details;
 
 	/**
 	 * Getter for result code
@@ -43,4 +53,28 @@ public class Result extends DataTransfer {
 		this.resultCode = resultCode;
 	}
 
+	/**
+	 * Adds the result of one line of a batch.
+	 * 
+	 * @param detail the result of the line
+	 */
+	public void addDetail(Result detail) {
+		if (details == null) {
+			details = new ArrayList<Result>();
+		}
+		details.add(detail);
+	}
+
+	/**
+	 * Returns the results of the lines of a batch, in the order of the lines.
+	 * 
+	 * @return iterator to the detail results, empty if there are none
+	 */
+	public Iterator<Result> getDetails() {
+		if (details == null) {
+			return Collections.emptyIterator();
+		}
+		return details.iterator();
+	}
+
 }
\ No newline at end of file
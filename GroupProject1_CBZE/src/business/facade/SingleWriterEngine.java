@@ -0,0 +1,190 @@
+package business.facade;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * A StoreEngine that applies all operations on one writer thread. Callers
+ * claim consecutive sequence numbers and place their operations in the slots
+ * of a ring buffer; the writer takes the slots in sequence order, so the
+ * operations are applied in the order they were claimed. The writer drains
+ * whatever has been published before it frees the slots, and parks only when
+ * the ring is empty. A caller waits for its own result, and an operation
+ * started by the writer itself runs at once.
+ *
+ * Once the engine is closed, the writer finishes the operation it is applying
+ * and stops. The operations still in the ring then fail with an
+ * IllegalStateException, as do the ones handed in afterwards, so that no
+ * caller is left waiting.
+ *
+ */
+class SingleWriterEngine implements StoreEngine {
+	private static final int CAPACITY = 1024;
+	private static final int SPINS = 100;
+	private final AtomicReferenceArray<Task> ring =
+			new AtomicReferenceArray<Task>(CAPACITY);
+	private final AtomicLong claimed = new AtomicLong();
+	private final Thread writer;
+	private volatile long consumed;
+	private volatile boolean parked;
+	private volatile boolean closed;
+	private volatile boolean stopped;
+
+	/**
+	 * An operation in the ring and, once applied, its outcome.
+	 */
+	private static class Task {
+		private final long sequence;
+		private final Supplier<Result> operation;
+		private final Thread caller;
+		private Result result;
+		private Throwable failure;
+		private volatile boolean done;
+
+		private Task(long sequence, Supplier<Result> operation) {
+			this.sequence = sequence;
+			this.operation = operation;
+			this.caller = Thread.currentThread();
+		}
+	}
+
+	/**
+	 * Starts the writer thread.
+	 */
+	SingleWriterEngine() {
+		writer = new Thread(this::run, "store-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Hands an operation to the writer and waits for its result.
+	 *
+	 * @param operation the operation
+	 * @return the result of the operation
+	 * @throws IllegalStateException if the engine is closed before the
+	 *                               operation is applied
+	 */
+	@Override
+	public Result apply(Supplier<Result> operation) {
+		if (Thread.currentThread() == writer) {
+			return operation.get();
+		}
+		if (closed) {
+			throw closedException();
+		}
+		long sequence = claimed.getAndIncrement();
+		while (sequence - consumed >= CAPACITY) {
+			if (stopped) {
+				throw closedException();
+			}
+			Thread.yield();
+		}
+		Task task = new Task(sequence, operation);
+		ring.set(slot(sequence), task);
+		if (parked) {
+			LockSupport.unpark(writer);
+		}
+		while (!task.done) {
+			if (stopped) {
+				// published after the writer drained the ring
+				ring.compareAndSet(slot(sequence), task, null);
+				if (!task.done) {
+					throw closedException();
+				}
+				break;
+			}
+			LockSupport.park(this);
+		}
+		if (task.failure instanceof RuntimeException) {
+			throw (RuntimeException) task.failure;
+		} else if (task.failure != null) {
+			throw (Error) task.failure;
+		}
+		return task.result;
+	}
+
+	/**
+	 * Stops the writer after the operation it is applying, and fails the
+	 * operations that are still waiting.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(writer);
+	}
+
+	private void run() {
+		long next = 0;
+		while (true) {
+			Task task = await(next);
+			if (task == null) {
+				break;
+			}
+			long end = next;
+			do {
+				ring.set(slot(end), null);
+				apply(task);
+				task = ring.get(slot(++end));
+			} while (task != null && task.sequence == end && !closed);
+			consumed = end;
+			next = end;
+		}
+		stopped = true;
+		for (int slot = 0; slot < CAPACITY; slot++) {
+			Task task = ring.getAndSet(slot, null);
+			if (task != null) {
+				task.failure = closedException();
+				task.done = true;
+				LockSupport.unpark(task.caller);
+			}
+		}
+	}
+
+	/**
+	 * Waits until the operation with the given sequence number is published.
+	 * Returns null if the engine is closed meanwhile.
+	 */
+	private Task await(long sequence) {
+		int spins = 0;
+		while (!closed) {
+			Task task = ring.get(slot(sequence));
+			if (task != null && task.sequence == sequence) {
+				parked = false;
+				return task;
+			}
+			if (spins < SPINS) {
+				spins++;
+				Thread.onSpinWait();
+			} else if (!parked) {
+				parked = true;
+			} else {
+				LockSupport.park(this);
+			}
+		}
+		return null;
+	}
+
+	private static void apply(Task task) {
+		try {
+			task.result = task.operation.get();
+		} catch (RuntimeException | Error e) {
+			task.failure = e;
+		}
+		task.done = true;
+		LockSupport.unpark(task.caller);
+	}
+
+	private static IllegalStateException closedException() {
+		return new IllegalStateException("The store engine is closed");
+	}
+
+	private static int slot(long sequence) {
+		return (int) (sequence & (CAPACITY - 1));
+	}
+}
@@ -0,0 +1,308 @@
+package business.facade;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The binary format of Store snapshots. A snapshot starts with a magic
+ * number, the version of the format and the generation of the snapshot, and
+ * ends with a CRC32 checksum of everything before it; what lies in between is
+ * up to Store.
+ *
+ * Integers are written as varints, seven bits to a byte, so that small counts
+ * and ids take a byte or two; signed values are zigzag encoded first. Amounts
+ * of money that are whole cents are written as varints of cents, other
+ * doubles in full. Strings go through a table built as the snapshot is
+ * written: the first occurrence of a string is written out, length-prefixed
+ * in UTF-8, and later ones refer to it by its index, so product ids and names
+ * repeated in every transaction take a byte or two each.
+ *
+ * A snapshot is encoded in memory and written in one go, and read back whole
+ * before it is decoded.
+ *
+ */
+class SnapshotCodec {
+	static final int MAGIC = 0x53534E50;
+	static final int VERSION = 1;
+	private static final int TRAILER_LENGTH = 4;
+	private static final int NULL_STRING = 0;
+	private static final int NEW_STRING = 1;
+	private static final int FIRST_REFERENCE = 2;
+	private static final long INEXACT = 1;
+	private static final long MAX_CENTS = 1L << 60;
+
+	private SnapshotCodec() {
+	}
+
+	/**
+	 * Tells whether a file starts like a snapshot in this format.
+	 *
+	 * @param header the first bytes of the file
+	 * @return true iff the magic number is there
+	 */
+	static boolean matches(byte[] header) {
+		return header.length >= 4 && readMagic(header) == MAGIC;
+	}
+
+	private static int readMagic(byte[] bytes) {
+		return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16
+				| (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF;
+	}
+
+	/**
+	 * Writes a snapshot into a growing byte array.
+	 */
+	static class Encoder {
+		private final Map<String, Integer> strings =
+				new HashMap<String, Integer>();
+		private byte[] bytes = new byte[1 << 16];
+		private int length;
+
+		/**
+		 * Starts a snapshot with its header.
+		 *
+		 * @param generation the generation of the snapshot
+		 */
+		Encoder(long generation) {
+			writeFixedInt(MAGIC);
+			writeVarInt(VERSION);
+			writeVarLong(generation + 1);
+		}
+
+		void writeVarInt(int value) {
+			writeVarLong(value & 0xFFFFFFFFL);
+		}
+
+		void writeVarLong(long value) {
+			ensure(10);
+			while ((value & ~0x7FL) != 0) {
+				bytes[length++] = (byte) (value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte) value;
+		}
+
+		/**
+		 * Writes a value that may be negative, zigzag encoded so that small
+		 * magnitudes stay short.
+		 */
+		void writeSignedVarLong(long value) {
+			writeVarLong(value << 1 ^ value >> 63);
+		}
+
+		/**
+		 * Writes an amount of money, as cents if that is exact.
+		 */
+		void writeAmount(double value) {
+			long cents = Math.round(value * 100);
+			if (Math.abs(cents) < MAX_CENTS && Double.doubleToLongBits(
+					cents / 100.0) == Double.doubleToLongBits(value)) {
+				writeVarLong((cents << 1 ^ cents >> 63) << 1);
+				return;
+			}
+			writeVarLong(INEXACT);
+			writeFixedLong(Double.doubleToLongBits(value));
+		}
+
+		void writeString(String value) {
+			if (value == null) {
+				writeVarInt(NULL_STRING);
+				return;
+			}
+			Integer index = strings.get(value);
+			if (index != null) {
+				writeVarInt(index + FIRST_REFERENCE);
+				return;
+			}
+			strings.put(value, strings.size());
+			byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(NEW_STRING);
+			writeVarInt(encoded.length);
+			ensure(encoded.length);
+			System.arraycopy(encoded, 0, bytes, length, encoded.length);
+			length += encoded.length;
+		}
+
+		private void writeFixedInt(int value) {
+			ensure(4);
+			for (int shift = 24; shift >= 0; shift -= 8) {
+				bytes[length++] = (byte) (value >>> shift);
+			}
+		}
+
+		private void writeFixedLong(long value) {
+			writeFixedInt((int) (value >>> 32));
+			writeFixedInt((int) value);
+		}
+
+		private void ensure(int needed) {
+			if (length + needed > bytes.length) {
+				bytes = Arrays.copyOf(bytes,
+						Math.max(bytes.length * 2, length + needed));
+			}
+		}
+
+		/**
+		 * Ends the snapshot with its checksum and writes it out.
+		 *
+		 * @param output where the snapshot goes
+		 * @return the size of the snapshot in bytes
+		 * @throws IOException if the output fails
+		 */
+		int writeTo(OutputStream output) throws IOException {
+			CRC32 crc = new CRC32();
+			crc.update(bytes, 0, length);
+			writeFixedInt((int) crc.getValue());
+			output.write(bytes, 0, length);
+			return length;
+		}
+	}
+
+	/**
+	 * Reads back a snapshot written by an Encoder.
+	 */
+	static class Decoder {
+		private final List<String> strings = new ArrayList<String>();
+		private final byte[] bytes;
+		private final int end;
+		private final long generation;
+		private int position;
+
+		/**
+		 * Checks the header and the checksum of a snapshot.
+		 *
+		 * @param bytes the whole snapshot
+		 * @throws IOException if the snapshot is damaged, or of a later
+		 *                     version
+		 */
+		Decoder(byte[] bytes) throws IOException {
+			this.bytes = bytes;
+			end = bytes.length - TRAILER_LENGTH;
+			if (end < 4 || readMagic(bytes) != MAGIC) {
+				throw new IOException("Not a snapshot");
+			}
+			CRC32 crc = new CRC32();
+			crc.update(bytes, 0, end);
+			position = end;
+			if (readFixedInt(bytes.length) != (int) crc.getValue()) {
+				throw new IOException("Snapshot checksum mismatch");
+			}
+			position = 4;
+			int version = readVarInt();
+			if (version != VERSION) {
+				throw new IOException(
+						"Unsupported snapshot version " + version);
+			}
+			generation = readVarLong() - 1;
+		}
+
+		/**
+		 * Getter for the generation of the snapshot.
+		 *
+		 * @return generation
+		 */
+		long getGeneration() {
+			return generation;
+		}
+
+		int readVarInt() throws IOException {
+			long value = readVarLong();
+			if (value >>> 32 != 0) {
+				throw new IOException("Snapshot value out of range");
+			}
+			return (int) value;
+		}
+
+		long readVarLong() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte next = readByte();
+				value |= (long) (next & 0x7F) << shift;
+				if (next >= 0) {
+					return value;
+				}
+			}
+			throw new IOException("Snapshot varint too long");
+		}
+
+		long readSignedVarLong() throws IOException {
+			long value = readVarLong();
+			return value >>> 1 ^ -(value & 1);
+		}
+
+		double readAmount() throws IOException {
+			long value = readVarLong();
+			if (value == INEXACT) {
+				return Double.longBitsToDouble(readFixedLong());
+			}
+			value >>>= 1;
+			return (value >>> 1 ^ -(value & 1)) / 100.0;
+		}
+
+		String readString() throws IOException {
+			int index = readVarInt();
+			if (index == NULL_STRING) {
+				return null;
+			}
+			if (index != NEW_STRING) {
+				if (index - FIRST_REFERENCE >= strings.size()) {
+					throw new IOException("Snapshot string out of range");
+				}
+				return strings.get(index - FIRST_REFERENCE);
+			}
+			int count = readVarInt();
+			if (count < 0 || count > end - position) {
+				throw new IOException("Snapshot string too long");
+			}
+			String value = new String(bytes, position, count,
+					StandardCharsets.UTF_8);
+			position += count;
+			strings.add(value);
+			return value;
+		}
+
+		/**
+		 * Checks that the whole snapshot was read.
+		 *
+		 * @throws IOException if anything is left before the checksum
+		 */
+		void finish() throws IOException {
+			if (position != end) {
+				throw new IOException("Snapshot has trailing data");
+			}
+		}
+
+		private byte readByte() throws IOException {
+			if (position >= end) {
+				throw new IOException("Snapshot truncated");
+			}
+			return bytes[position++];
+		}
+
+		private int readFixedInt(int limit) throws IOException {
+			if (position + 4 > limit) {
+				throw new IOException("Snapshot truncated");
+			}
+			int value = 0;
+			for (int count = 0; count < 4; count++) {
+				value = value << 8 | bytes[position++] & 0xFF;
+			}
+			return value;
+		}
+
+		private long readFixedLong() throws IOException {
+			long high = readFixedInt(end);
+			return high << 32 | readFixedInt(end) & 0xFFFFFFFFL;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package business.facade;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts a StoreData file saved with Java serialization to the binary
+ * format of SnapshotCodec. The store retrieves either format and saves the
+ * new one, so a StoreData file is converted by the first save anyway; the
+ * converter does it ahead of time, without starting the store. The
+ * generation of the snapshot is kept, so its journal still applies.
+ *
+ */
+public class SnapshotConverter {
+	private SnapshotConverter() {
+	}
+
+	/**
+	 * Converts a snapshot. A snapshot already in the new format is rewritten
+	 * as it is.
+	 *
+	 * @param from the snapshot
+	 * @param to   where the converted snapshot goes, which may be the same
+	 *             file
+	 * @throws IOException if a file cannot be read or written, or the
+	 *                     snapshot is not one of a store
+	 */
+	public static void convert(Path from, Path to) throws IOException {
+		try {
+			Store.convertSnapshot(from, to);
+		} catch (ClassNotFoundException cnfe) {
+			throw new IOException("Not a snapshot of a store", cnfe);
+		}
+	}
+
+	/**
+	 * Converts a StoreData file in place, or to a file of its own.
+	 *
+	 * @param args optionally the file to convert, StoreData by default, and
+	 *             the file to write, the same one by default
+	 */
+	public static void main(String[] args) {
+		Path from = Paths.get(args.length > 0 ? args[0] : "StoreData");
+		Path to = args.length > 1 ? Paths.get(args[1]) : from;
+		try {
+			convert(from, to);
+			System.out.println("Converted " + from + " to " + to);
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+		}
+	}
+}
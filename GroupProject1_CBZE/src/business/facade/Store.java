@@ -4,53 +4,349 @@ package business.facade;
  * 
  * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc 
  */
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
+import business.entities.Inventory;
 import business.entities.ItemList;
 import business.entities.Member;
 import business.entities.Order;
 import business.entities.Product;
 import business.entities.Transaction;
+import business.entities.TransactionIndex;
 import business.entities.TransactionItem;
 import business.entities.iterators.SafeMemberIterator;
 import business.entities.iterators.SafeOrderIterator;
 import business.entities.iterators.SafeProductIterator;
 
 /**
- * The facade class handling all requests from users.
+ * The facade class handling all requests from users. It is safe for use by
+ * several threads: changes to the collections are synchronized, operations on
+ * a member or a product hold the lock of that member's or product's stripe,
+ * and stock is updated atomically without locking, so that checkouts proceed
+ * in parallel. Looking up a member or product by id and listing the
+ * collections take no lock at all.
+ * 
+ * Alternatively, the operations that change the store can all be applied by a
+ * single writer thread, in the order they were called; see StoreEngine.
+ * 
+ * Each change can also be appended to a journal as it is made, under the same
+ * lock that orders it, so that retrieve() recovers the changes made since the
+ * last snapshot by replaying the journal onto it; see Journal. Snapshots of a
+ * journaled store are checkpoints: they are built from the previous snapshot
+ * and the journal, without holding up the operations on the store, by save()
+ * and in the background as the journal grows; see Checkpointer.
+ * 
+ * Snapshots are written in the binary format of SnapshotCodec. Snapshots
+ * saved with Java serialization by earlier versions are still retrieved, and
+ * SnapshotConverter converts them ahead of time.
  */
 public class Store implements Serializable {
 	private static final long serialVersionUID = 1L;
+	private static final int STRIPES = 64;
+	private static final int REORDER_QUEUE = 4096;
+	private static final int REORDER_BATCH = 256;
+	private static final String SNAPSHOT_FILE = "StoreData";
+	private static final String JOURNAL_FILE = "StoreJournal";
+	/*
+	 * The generation of a store that was never saved. Snapshots saved before
+	 * generations were kept count as generation 0.
+	 */
+	private static final long UNSAVED = -1;
+	private static final byte MEMBER_ADDED = 1;
+	private static final byte MEMBER_REMOVED = 2;
+	private static final byte PRODUCT_ADDED = 3;
+	private static final byte PRODUCT_REMOVED = 4;
+	private static final byte ORDER_PLACED = 5;
+	private static final byte ORDER_QUANTITY = 6;
+	private static final byte ORDER_RECEIVED = 7;
+	private static final byte PRICE_CHANGED = 8;
+	private static final byte TRANSACTION_STARTED = 9;
+	private static final byte ITEM_PURCHASED = 10;
+	private static final byte TRANSACTION_REMOVED = 11;
+	private static final byte PAYMENT_MADE = 12;
 	private Catalog catalog = new Catalog();
 	private MemberList members = new MemberList();
 	private OrderList orders = new OrderList();
-	private static Store store;
+	private transient TransactionIndex sales = new TransactionIndex();
+	private transient StripedLock productLocks = new StripedLock(STRIPES);
+	private transient StripedLock memberLocks = new StripedLock(STRIPES);
+	private transient LongAdder ordersPlaced = new LongAdder();
+	private transient LongAdder ordersCoalesced = new LongAdder();
+	private transient ReorderPipeline reorders = newReorderPipeline();
+	private transient StoreEngine engine = StoreEngine.fromProperty();
+	private transient ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+	private transient volatile Journal journal;
+	private transient long generation = UNSAVED;
+	private transient Checkpointer checkpointer;
+	private transient volatile long checkpoints;
+	private transient volatile long checkpointNanos;
+	private transient volatile long replayNanos;
+	private transient volatile long recordsReplayed;
+	private static volatile Store store;
 
 	/**
 	 * A collection class in Store that stores and handles/processes Order
-	 * objects.
+	 * objects. The outstanding orders are also indexed by product id.
 	 */
-	private class OrderList extends ItemList<Order, String>
+	private class OrderList extends ItemList<Order, Integer>
 			implements Iterable<Order>, Serializable {
 		private static final long serialVersionUID = 1L;
+		private transient Map<String, List<Order>> products =
+				new HashMap<String, List<Order>>();
+
+		/**
+		 * Finds the outstanding orders for a product.
+		 * 
+		 * @param productId the id of the product
+		 * @return iterator to the orders, oldest first
+		 */
+		public synchronized Iterator<Order> searchProduct(String productId) {
+			List<Order> productOrders = products.get(productId);
+			if (productOrders == null) {
+				return new LinkedList<Order>().iterator();
+			}
+			return new ArrayList<Order>(productOrders).iterator();
+		}
+
+		/**
+		 * Inserts an order and indexes it by its product id.
+		 * 
+		 * @param order the order to be inserted
+		 * @return true iff the order could be inserted
+		 */
+		@Override
+		public synchronized boolean insert(Order order) {
+			if (!super.insert(order)) {
+				return false;
+			}
+			index(order);
+			journal(ORDER_PLACED, output -> {
+				output.writeInt(order.getNumber());
+				output.writeUTF(order.getProductId());
+				Journal.writeString(output, order.getProductName());
+				output.writeInt(order.getQuantity());
+				output.writeLong(order.getTime());
+			});
+			return true;
+		}
+
+		/**
+		 * Removes an order along with its product index entry.
+		 * 
+		 * @param number the number of the order
+		 * @return true iff the order was removed
+		 */
+		@Override
+		public synchronized boolean remove(Integer number) {
+			Order order = search(number);
+			if (order == null || !super.remove(number)) {
+				return false;
+			}
+			List<Order> productOrders = products.get(order.getProductId());
+			productOrders.remove(order);
+			if (productOrders.isEmpty()) {
+				products.remove(order.getProductId());
+			}
+			journal(ORDER_RECEIVED, output -> output.writeInt(number));
+			return true;
+		}
+
+		/**
+		 * Reorders a product whose stock has reached the reorder level. If the
+		 * product already has an outstanding order, the demand is added to that
+		 * order rather than placing another one. Both happen under the lock of
+		 * the list, so an order cannot be received while demand is being added
+		 * to it.
+		 * 
+		 * @param product the product to be reordered
+		 * @param demand  the quantity just sold
+		 * @param result  receives the order id, the order quantity and the
+		 *                result code ORDER_PLACED or ORDER_COALESCED
+		 */
+		public synchronized void reorder(Product product, int demand,
+				Result result) {
+			boolean placed = reorder(product, demand);
+			Order order = products.get(product.getId()).get(0);
+			result.setResultCode(
+					placed ? Result.ORDER_PLACED : Result.ORDER_COALESCED);
+			result.setOrderQuantity(String.valueOf(order.getQuantity()));
+			result.setOrderId(order.getId());
+		}
+
+		/**
+		 * Processes a batch of reorders from the reorder pipeline with a
+		 * single acquisition of the lock. A product whose stock has risen
+		 * above its reorder level since the sale, as when a shipment came in,
+		 * is not reordered.
+		 * 
+		 * @param events the reorders
+		 */
+		public synchronized void reorderAll(
+				List<ReorderPipeline.Event> events) {
+			for (ReorderPipeline.Event event : events) {
+				if (event.getProduct().checkReorder()) {
+					reorder(event.getProduct(), event.getDemand());
+				}
+			}
+		}
+
+		/**
+		 * Places or coalesces a reorder.
+		 * 
+		 * @return true iff a new order was placed
+		 */
+		private boolean reorder(Product product, int demand) {
+			List<Order> productOrders = products.get(product.getId());
+			if (productOrders != null) {
+				Order order = productOrders.get(0);
+				order.addQuantity(demand);
+				journal(ORDER_QUANTITY, output -> {
+					output.writeInt(order.getNumber());
+					output.writeInt(order.getQuantity());
+				});
+				ordersCoalesced.increment();
+				return false;
+			}
+			insert(new Order(product.getId(), product.getName(),
+					product.getReorderLevel()));
+			ordersPlaced.increment();
+			return true;
+		}
+
+		/**
+		 * Removes a batch of orders with a single acquisition of the lock. The
+		 * product index is updated once per product involved.
+		 * 
+		 * @param numbers the numbers of the orders
+		 * @return the orders that were removed, in the order of the numbers
+		 */
+		public synchronized List<Order> removeAll(Collection<Integer> numbers) {
+			List<Order> removed = new ArrayList<Order>(numbers.size());
+			for (Integer number : numbers) {
+				Order order = search(number);
+				if (order != null && super.remove(number)) {
+					removed.add(order);
+					journal(ORDER_RECEIVED, output -> output.writeInt(number));
+				}
+			}
+			Set<Order> gone = new HashSet<Order>(removed);
+			Set<String> productIds = new HashSet<String>();
+			for (Order order : removed) {
+				if (productIds.add(order.getProductId())) {
+					List<Order> productOrders = products
+							.get(order.getProductId());
+					productOrders.removeIf(gone::contains);
+					if (productOrders.isEmpty()) {
+						products.remove(order.getProductId());
+					}
+				}
+			}
+			return removed;
+		}
+
+		private void index(Order order) {
+			List<Order> productOrders = products.get(order.getProductId());
+			if (productOrders == null) {
+				productOrders = new ArrayList<Order>(1);
+				products.put(order.getProductId(), productOrders);
+			}
+			productOrders.add(order);
+		}
+
+		private void readObject(ObjectInputStream input)
+				throws IOException, ClassNotFoundException {
+			input.defaultReadObject();
+			products = new HashMap<String, List<Order>>();
+			for (Order order : this) {
+				index(order);
+			}
+		}
 	}
 
 	/**
-	 * The collection class in Store for Product objects.
+	 * The collection class in Store for Product objects. Product names are
+	 * unique and indexed alongside the ids, both exactly and in sorted order
+	 * for prefix searches. The stock, price and reorder level of cataloged
+	 * products live in the catalog's Inventory.
 	 *
 	 */
 	private class Catalog extends ItemList<Product, String>
 			implements Iterable<Product>, Serializable {
 		private static final long serialVersionUID = 1L;
-		private List<Product> products = new LinkedList<Product>();
+		private transient Map<String, Product> names =
+				new HashMap<String, Product>();
+		private transient NavigableMap<String, Product> sortedNames =
+				new TreeMap<String, Product>();
+		private transient Inventory inventory = new Inventory();
+		private transient List<Product> slots = new ArrayList<Product>();
+
+		/**
+		 * Key of a product in the sorted name index. Names are compared
+		 * without regard to case, the exact name keeps the keys unique.
+		 * 
+		 * @param name the name of the product
+		 * @return the sort key
+		 */
+		private String sortKey(String name) {
+			return name.toLowerCase() + '\0' + name;
+		}
+
+		/**
+		 * Finds the products whose names start with the given prefix,
+		 * ignoring case, in alphabetical order.
+		 * 
+		 * @param prefix the start of the product name
+		 * @param limit  the maximum number of products returned, no limit if
+		 *               0 or less
+		 * @return iterator to the matching products
+		 */
+		public synchronized Iterator<Product> searchPrefix(String prefix,
+				int limit) {
+			String from = prefix.toLowerCase();
+			List<Product> matches = new ArrayList<Product>();
+			for (Product product : sortedNames
+					.subMap(from, true, from + Character.MAX_VALUE, false)
+					.values()) {
+				if (limit > 0 && matches.size() == limit) {
+					break;
+				}
+				matches.add(product);
+			}
+			return matches.iterator();
+		}
 
 		/**
 		 * Checks whether a product with a given name exists.
@@ -59,15 +355,95 @@ public class Store implements Serializable {
 		 * @return true iff the product exists
 		 * 
 		 */
-		public boolean searchNames(String name) {
-			for (Iterator<Product> iterator = products.iterator(); iterator
-					.hasNext();) {
-				Product product = (Product) iterator.next();
-				if (product.getName().equals(name)) {
-					return true;
-				}
+		public synchronized boolean searchNames(String name) {
+			return names.containsKey(name);
+		}
+
+		/**
+		 * Finds the products whose stock is at or below their reorder level
+		 * with a scan of the inventory columns.
+		 * 
+		 * @return iterator to the products in catalog order
+		 */
+		public synchronized Iterator<Product> searchLowStock() {
+			List<Product> lowStock = new ArrayList<Product>();
+			for (int slot : inventory.getLowStockSlots()) {
+				lowStock.add(slots.get(slot));
+			}
+			return lowStock.iterator();
+		}
+
+		/**
+		 * Getter for the value of all products in stock.
+		 * 
+		 * @return sum of stock times price
+		 */
+		public synchronized double getValue() {
+			return inventory.getTotalValue();
+		}
+
+		/**
+		 * Inserts a product unless another product already uses its id or
+		 * name.
+		 * 
+		 * @param product the product to be inserted
+		 * @return true iff the product could be inserted
+		 */
+		@Override
+		public synchronized boolean insert(Product product) {
+			if (product.getId() == null || search(product.getId()) != null
+					|| names.containsKey(product.getName())) {
+				return false;
+			}
+			journal(PRODUCT_ADDED, output -> {
+				output.writeUTF(product.getId());
+				output.writeUTF(product.getName());
+				output.writeInt(product.getStock());
+				output.writeInt(product.getReorderLevel());
+				output.writeDouble(product.getPrice());
+			});
+			// moved before it is published, as searches do not lock
+			product.moveTo(inventory);
+			super.insert(product);
+			names.put(product.getName(), product);
+			sortedNames.put(sortKey(product.getName()), product);
+			slots.add(product);
+			return true;
+		}
+
+		/**
+		 * Removes the product with the given id along with its name.
+		 * 
+		 * @param id the id of the product
+		 * @return true iff the product was removed
+		 */
+		@Override
+		public synchronized boolean remove(String id) {
+			Product product = search(id);
+			if (product == null || !super.remove(id)) {
+				return false;
+			}
+			names.remove(product.getName());
+			sortedNames.remove(sortKey(product.getName()));
+			inventory.release(product.getSlot());
+			slots.set(product.getSlot(), null);
+			journal(PRODUCT_REMOVED, output -> output.writeUTF(id));
+			return true;
+		}
+
+		private void readObject(ObjectInputStream input)
+				throws IOException, ClassNotFoundException {
+			input.defaultReadObject();
+			names = new HashMap<String, Product>();
+			sortedNames = new TreeMap<String, Product>();
+			inventory = new Inventory();
+			slots = new ArrayList<Product>();
+			for (Product product : this) {
+				names.put(product.getName(), product);
+				sortedNames.put(sortKey(product.getName()), product);
+				product.moveTo(inventory);
+				slots.add(product);
 			}
-			return false;
 		}
 	}
 
@@ -75,9 +451,47 @@ public class Store implements Serializable {
 	 * The collection class for Member objects
 	 *
 	 */
-	private class MemberList extends ItemList<Member, String>
+	private class MemberList extends ItemList<Member, Integer>
 			implements Iterable<Member>, Serializable {
 		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Inserts a member unless the number is in use.
+		 * 
+		 * @param member the member to be inserted
+		 * @return true iff the member could be inserted
+		 */
+		@Override
+		public synchronized boolean insert(Member member) {
+			if (search(member.getNumber()) != null) {
+				return false;
+			}
+			// journaled before it is published, as searches do not lock
+			journal(MEMBER_ADDED, output -> {
+				output.writeInt(member.getNumber());
+				Journal.writeString(output, member.getName());
+				Journal.writeString(output, member.getAddress());
+				Journal.writeString(output, member.getPhone());
+				Journal.writeString(output, member.getFeePaid());
+				output.writeLong(member.getJoinedTime());
+			});
+			return super.insert(member);
+		}
+
+		/**
+		 * Removes the member with the given number.
+		 * 
+		 * @param number the number of the member
+		 * @return true iff the member was removed
+		 */
+		@Override
+		public synchronized boolean remove(Integer number) {
+			if (!super.remove(number)) {
+				return false;
+			}
+			journal(MEMBER_REMOVED, output -> output.writeInt(number));
+			return true;
+		}
 	}
 
 	/**
@@ -88,18 +502,101 @@ public class Store implements Serializable {
 	}
 
 	/**
-	 * Supports the singleton pattern
+	 * Creates the pipeline that places the reorders of this store.
+	 */
+	private ReorderPipeline newReorderPipeline() {
+		return new ReorderPipeline(REORDER_QUEUE, REORDER_BATCH,
+				events -> apply(() -> {
+					orders.reorderAll(events);
+					return null;
+				}));
+	}
+
+	/**
+	 * Supports the singleton pattern. Once the store exists, it is returned
+	 * without locking.
 	 * 
 	 * @return the singleton object
+	 * @throws IllegalStateException if a new store would be journaled, but
+	 *                               the journal of changes that were not
+	 *                               saved is still there; the store must be
+	 *                               retrieved to apply them, or reset to
+	 *                               discard them
 	 */
 	public static Store instance() {
-		if (store == null) {
-			return store = new Store();
-		} else {
+		Store current = store;
+		if (current != null) {
+			return current;
+		}
+		synchronized (Store.class) {
+			if (store == null) {
+				Store created = new Store();
+				created.startJournal();
+				store = created;
+			}
 			return store;
 		}
 	}
 
+	/**
+	 * Applies an operation that changes the store with the engine. The
+	 * operation holds off snapshots while it runs, and returns once its
+	 * changes are as durable as the journal policy asks.
+	 * 
+	 * @param operation the operation
+	 * @return the result of the operation
+	 */
+	private Result apply(Supplier<Result> operation) {
+		Result result;
+		Lock lock = snapshotLock.readLock();
+		lock.lock();
+		try {
+			result = engine.apply(operation);
+		} finally {
+			lock.unlock();
+		}
+		Journal current = journal;
+		if (current != null) {
+			try {
+				current.commit();
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Appends a record to the journal, if there is one. The caller holds the
+	 * lock that orders the change against those it depends on.
+	 * 
+	 * @param type   the type of the record
+	 * @param record writes the contents of the record
+	 */
+	private void journal(byte type, Journal.Record record) {
+		Journal current = journal;
+		if (current != null) {
+			try {
+				current.append(type, record);
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		}
+	}
+
+	/**
+	 * Journals an item added to the current transaction of a member. When it
+	 * is replayed, the quantity is also taken from the stock of the product.
+	 */
+	private void journalItem(Member member, TransactionItem item) {
+		journal(ITEM_PURCHASED, output -> {
+			output.writeInt(member.getNumber());
+			output.writeUTF(item.getId());
+			output.writeInt(item.getQuantity());
+			output.writeDouble(item.getPrice());
+		});
+	}
+
 	/**
 	 * Organizes the operations for adding a member
 	 * 
@@ -110,6 +607,13 @@ public class Store implements Serializable {
 	 * @return the Member object created
 	 */
 	public Result addMember(Request request) {
+		return apply(() -> applyAddMember(request));
+	}
+
+	/**
+	 * Adds a member on behalf of addMember.
+	 */
+	private Result applyAddMember(Request request) {
 		Result result = new Result();
 		Member member = new Member(request.getMemberName(),
 				request.getMemberAddress(), request.getMemberPhone(),
@@ -130,16 +634,33 @@ public class Store implements Serializable {
 	 * @return a code representing the outcome
 	 */
 	public Result removeMember(Request request) {
+		return apply(() -> applyRemoveMember(request));
+	}
+
+	/**
+	 * Removes a member on behalf of removeMember.
+	 */
+	private Result applyRemoveMember(Request request) {
 		Result result = new Result();
-		Member member = members.search(request.getMemberId());
+		Member member = members.search(Member.parseId(request.getMemberId()));
 		if (member == null) {
 			result.setResultCode(Result.NO_SUCH_MEMBER);
 			return result;
 		}
 		result.setMemberFields(member);
-		if (members.remove(request.getMemberId())) {
-			result.setResultCode(Result.OPERATION_COMPLETED);
-			return result;
+		Lock lock = memberLocks.get(member.getNumber());
+		lock.lock();
+		try {
+			if (members.remove(member.getNumber())) {
+				for (Iterator<Transaction> iterator = member
+						.getTransactions(); iterator.hasNext();) {
+					sales.remove(iterator.next());
+				}
+				result.setResultCode(Result.OPERATION_COMPLETED);
+				return result;
+			}
+		} finally {
+			lock.unlock();
 		}
 		result.setResultCode(Result.OPERATION_FAILED);
 		return result;
@@ -153,19 +674,28 @@ public class Store implements Serializable {
 	 * @param id     product reorder level
 	 * @param price  product price
 	 * @return the Product object created and an order for twice the reorder
-	 *         level of the product
+	 *         level of the product, or DUPLICATE_ID if the id or name is
+	 *         already in use (also when another thread added it first)
 	 */
 	public Result addProduct(Request request) {
+		return apply(() -> applyAddProduct(request));
+	}
+
+	/**
+	 * Adds a product on behalf of addProduct.
+	 */
+	private Result applyAddProduct(Request request) {
 		Result result = new Result();
+		if (catalog.search(request.getProductId()) != null
+				|| catalog.searchNames(request.getProductName())) {
+			result.setResultCode(Result.DUPLICATE_ID);
+			return result;
+		}
 		Product product = new Product(request.getProductName(),
 				request.getProductId(),
 				Integer.parseInt(request.getProductStock()),
 				Integer.parseInt(request.getProductReorderLevel()),
 				Double.parseDouble(request.getProductPrice()));
-		if (catalog.searchNames(request.getProductName())) {
-			result.setResultCode(Result.DUPLICATE_ID);
-			return result;
-		}
 		if (catalog.insert(product)) {
 			result.setResultCode(Result.OPERATION_COMPLETED);
 			result.setProductFields(product);
@@ -174,147 +704,534 @@ public class Store implements Serializable {
 			orders.insert(order);
 			return result;
 		}
-		result.setResultCode(Result.OPERATION_FAILED);
+		result.setResultCode(Result.DUPLICATE_ID);
 		return result;
 	}
 
 	/**
-	 * Method for a member to purchase products from the store, grouped as a
-	 * transaction. Member enter id and if valid the cashier begins checking out
-	 * products. These transaction items alter the stock of products and trigger
-	 * reordering when applicable. The product name, item quantity, product
-	 * price, price per quantity and transaction total are displayed per entry
-	 * of valid item and amount.
+	 * Removes a product from the catalog, so that its name may be used again.
+	 * A product that is on order is kept, as the shipment for the order would
+	 * have no product to go to.
 	 * 
-	 * @param (via request) member id, product id, product reorder level, item
-	 *             quantity.
-	 * @return result code, (order quantity, order id), product fields, item
-	 *         quantity, item total, transaction total.
+	 * @param (via request) product id
+	 * @return result code NO_SUCH_PRODUCT, OPERATION_FAILED if the product is
+	 *         on order, or OPERATION_COMPLETED, and the product fields
 	 */
-	public Result purchaseProducts(Request request) {
+	public Result removeProduct(Request request) {
+		return apply(() -> applyRemoveProduct(request));
+	}
+
+	/**
+	 * Removes a product on behalf of removeProduct.
+	 */
+	private Result applyRemoveProduct(Request request) {
 		Result result = new Result();
-		Member member = members.search(request.getMemberId());
-		result.setMemberFields(member);
 		Product product = catalog.search(request.getProductId());
 		if (product == null) {
 			result.setResultCode(Result.NO_SUCH_PRODUCT);
 			return result;
 		}
 		result.setProductFields(product);
-		int quantity = Integer.parseInt(request.getItemQuantity());
-		Transaction transaction = member.getCurrentTransaction();
-		if (product.checkStock(quantity) == false) {
+		if (orders.searchProduct(product.getId()).hasNext()
+				|| !catalog.remove(product.getId())) {
 			result.setResultCode(Result.OPERATION_FAILED);
 			return result;
 		}
-		TransactionItem item = new TransactionItem(product, quantity);
-		transaction.addItem(item);
-		product.setStock(product.getStock() - item.getQuantity());
-		result.setItemQuantity(String.valueOf(item.getQuantity()));
-		result.setItemTotal(String.valueOf(item.getTotal()));
-		result.setTransactionTotal(String.valueOf(transaction.getTotal()));
-		if (product.checkReorder()) {
-			Order order = new Order(product.getId(), product.getName(),
-					product.getReorderLevel());
-			orders.insert(order);
-			result.setOrderQuantity(String.valueOf(order.getQuantity()));
-			result.setOrderId(order.getId());
-			result.setResultCode(Result.ORDER_PLACED);
-			return result;
-		}
 		result.setResultCode(Result.OPERATION_COMPLETED);
 		return result;
 	}
 
 	/**
-	 * Checks if a member's current transaction is empty and if so, removes the
-	 * transaction.
+	 * Method for a member to purchase products from the store, grouped as a
+	 * transaction. Member enter id and if valid the cashier begins checking out
+	 * products. These transaction items alter the stock of products and trigger
+	 * reordering when applicable. The product name, item quantity, product
+	 * price, price per quantity and transaction total are displayed per entry
+	 * of valid item and amount. The stock is taken with an atomic
+	 * compare-and-set, so concurrent checkouts cannot oversell a product
+	 * without waiting on a lock for it. Reorders are queued for the reorder
+	 * pipeline (REORDER_QUEUED). A product that is already on order is not
+	 * ordered again; the quantity sold is added to its outstanding order. A
+	 * quantity that is not positive fails (OPERATION_FAILED) like one the
+	 * stock cannot cover. A member without a transaction buys nothing
+	 * (NO_TRANSACTION), and no stock is taken.
 	 * 
-	 * @param (via request) memberId id of member
-	 * @return result
+	 * @param (via request) member id, product id, product reorder level, item
+	 *             quantity.
+	 * @return result code, product fields, item quantity, item total,
+	 *         transaction total, and (order quantity, order id) if the reorder
+	 *         could not be queued and was placed (ORDER_PLACED) or coalesced
+	 *         (ORDER_COALESCED) at once.
 	 */
-	public Result checkTransaction(Request request) {
-		Result result = new Result();
-		Member member = members.search(request.getMemberId());
-		if (member.getCurrentTransaction().isEmpty()) {
-			member.removeCurrentTransaction();
-			result.setResultCode(Result.TRANSACTION_EMPTY);
-			return result;
-		}
-		result.setResultCode(Result.OPERATION_COMPLETED);
-		result.setTransactionTotal(
-				String.valueOf(member.getCurrentTransaction().getTotal()));
-		return result;
+	public Result purchaseProducts(Request request) {
+		return purchaseProducts(Member.parseId(request.getMemberId()),
+				request.getProductId(),
+				Integer.parseInt(request.getItemQuantity()));
 	}
 
 	/**
-	 * Creates a transaction for a specific member.
+	 * Purchases a product for the current transaction of a member, taking
+	 * the member number and quantity as numbers.
 	 * 
-	 * @param (via request) member id
-	 * @return result
+	 * @param memberNumber the number of the member
+	 * @param productId    the id of the product
+	 * @param quantity     the quantity purchased
+	 * @return result as for purchaseProducts(Request)
 	 */
-	public Result createTransaction(Request request) {
+	public Result purchaseProducts(int memberNumber, String productId,
+			int quantity) {
+		return apply(
+				() -> applyPurchaseProducts(memberNumber, productId, quantity));
+	}
+
+	/**
+	 * Purchases a product on behalf of purchaseProducts.
+	 */
+	private Result applyPurchaseProducts(int memberNumber, String productId,
+			int quantity) {
 		Result result = new Result();
-		Member member = members.search(request.getMemberId());
+		Member member = members.search(memberNumber);
 		if (member == null) {
 			result.setResultCode(Result.NO_SUCH_MEMBER);
 			return result;
 		}
 		result.setMemberFields(member);
-		member.addTransaction(new Transaction());
+		Product product = catalog.search(productId);
+		if (product == null) {
+			result.setResultCode(Result.NO_SUCH_PRODUCT);
+			return result;
+		}
+		result.setProductFields(product);
+		if (quantity <= 0) {
+			result.setResultCode(Result.OPERATION_FAILED);
+			return result;
+		}
+		Lock lock = memberLocks.get(member.getNumber());
+		lock.lock();
+		try {
+			Transaction transaction = member.getCurrentTransaction();
+			if (transaction == null) {
+				result.setResultCode(Result.NO_TRANSACTION);
+				return result;
+			}
+			if (!product.tryDecrementStock(quantity)) {
+				result.setResultCode(Result.OPERATION_FAILED);
+				return result;
+			}
+			TransactionItem item = new TransactionItem(product, quantity);
+			transaction.addItem(item);
+			journalItem(member, item);
+			result.setItemQuantity(String.valueOf(item.getQuantity()));
+			result.setItemTotal(String.valueOf(item.getTotal()));
+			result.setTransactionTotal(
+					String.valueOf(transaction.getTotal()));
+			if (product.checkReorder()) {
+				reorder(product, quantity, result);
+				return result;
+			}
+		} finally {
+			lock.unlock();
+		}
 		result.setResultCode(Result.OPERATION_COMPLETED);
 		return result;
 	}
 
 	/**
-	 * Handles the processing of a transaction for a specific member by
-	 * calculating change owed upon payment.
+	 * Hands a product that has reached its reorder level to the reorder
+	 * pipeline, so that the sale does not wait for the order. If the pipeline
+	 * is full, the reorder is done at once instead.
 	 * 
-	 * @param (via request) member id, payment from customer (transactionChange)
-	 * @return result transactionChange via processing transaction
+	 * @param product the product
+	 * @param demand  the quantity just sold
+	 * @param result  receives the result code REORDER_QUEUED, or the order
+	 *                as for OrderList.reorder
 	 */
-	public Result getChange(Request request) {
-		Result result = new Result();
-		Member member = members.search(request.getMemberId());
-		Transaction transaction = member.getCurrentTransaction();
-		transaction
-				.setPayment(Double.parseDouble(request.getTransactionChange()));
-		if (transaction.processTransaction()) {
-			result.setTransactionChange(String.valueOf(Math
-					.abs(transaction.getPayment() - transaction.getTotal())));
-			result.setResultCode(Result.TRANSACTION_COMPLETE);
-			return result;
+	private void reorder(Product product, int demand, Result result) {
+		if (reorders.submit(product, demand)) {
+			result.setResultCode(Result.REORDER_QUEUED);
+		} else {
+			orders.reorder(product, demand, result);
 		}
-		result.setResultCode(Result.INSUFFICIENT_FUNDS);
-		return result;
 	}
 
 	/**
-	 * Processes shipments and by fulfilling orders and updating the applicable
-	 * product stocks.
+	 * Waits until all reorders queued so far have been placed, so that their
+	 * orders show in getOrders() and getProductOrders().
+	 */
+	public void flushReorders() {
+		try {
+			reorders.flush();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Purchases a whole basket for the current transaction of a member in one
+	 * call. All products are looked up first. Then, under a single
+	 * acquisition of the member lock, the current transaction is checked and
+	 * the stock of every line is taken; if a line cannot be covered, the stock
+	 * already taken is put back, so that either the whole basket is bought or
+	 * nothing is. The items are added to the transaction, and each product is
+	 * checked for reordering once.
 	 * 
-	 * @param (via request) order id
-	 * @return result
+	 * @param (via request) member id, basket.
+	 * @return result code, item quantity and item total of the basket,
+	 *         transaction total, and per line a detail result with the product
+	 *         fields, item quantity, item total and result code as for
+	 *         purchaseProducts. The result code of the basket is ORDER_PLACED
+	 *         if any line placed an order, otherwise that of the last line that
+	 *         reordered, if any. If a product is missing, short of stock or
+	 *         asked for in a quantity that is not positive, the result
+	 *         carries its product fields instead. A member without a
+	 *         transaction buys nothing (NO_TRANSACTION).
 	 */
-	public Result processShipments(Request request) {
-		Result result = new Result();
-		Order order = orders.search(request.getOrderId());
-		if (order == null) {
-			result.setResultCode(Result.NO_ORDER_FOUND);
+	public Result purchaseBasket(Request request) {
+		return apply(() -> applyPurchaseBasket(request));
+	}
+
+	/**
+	 * Purchases a basket on behalf of purchaseBasket.
+	 */
+	private Result applyPurchaseBasket(Request request) {
+		Result result = new Result();
+		Member member = members.search(Member.parseId(request.getMemberId()));
+		if (member == null) {
+			result.setResultCode(Result.NO_SUCH_MEMBER);
+			return result;
+		}
+		result.setMemberFields(member);
+		Map<String, Integer> basket = request.getBasket();
+		Product[] products = new Product[basket.size()];
+		int[] quantities = new int[basket.size()];
+		int line = 0;
+		for (Map.Entry<String, Integer> entry : basket.entrySet()) {
+			products[line] = catalog.search(entry.getKey());
+			if (products[line] == null) {
+				result.setProductId(entry.getKey());
+				result.setResultCode(Result.NO_SUCH_PRODUCT);
+				return result;
+			}
+			quantities[line] = entry.getValue();
+			if (quantities[line] <= 0) {
+				result.setProductFields(products[line]);
+				result.setResultCode(Result.OPERATION_FAILED);
+				return result;
+			}
+			line++;
+		}
+		int quantity = 0;
+		double total = 0;
+		int code = Result.OPERATION_COMPLETED;
+		Lock lock = memberLocks.get(member.getNumber());
+		lock.lock();
+		try {
+			Transaction transaction = member.getCurrentTransaction();
+			if (transaction == null) {
+				result.setResultCode(Result.NO_TRANSACTION);
+				return result;
+			}
+			for (line = 0; line < products.length; line++) {
+				if (!products[line].tryDecrementStock(quantities[line])) {
+					result.setProductFields(products[line]);
+					while (--line >= 0) {
+						products[line].incrementStock(quantities[line]);
+					}
+					result.setResultCode(Result.OPERATION_FAILED);
+					return result;
+				}
+			}
+			for (line = 0; line < products.length; line++) {
+				Product product = products[line];
+				TransactionItem item = new TransactionItem(product,
+						quantities[line]);
+				transaction.addItem(item);
+				journalItem(member, item);
+				quantity += item.getQuantity();
+				total += item.getTotal();
+				Result detail = new Result();
+				detail.setProductFields(product);
+				detail.setItemQuantity(String.valueOf(item.getQuantity()));
+				detail.setItemTotal(String.valueOf(item.getTotal()));
+				detail.setResultCode(Result.OPERATION_COMPLETED);
+				if (product.checkReorder()) {
+					reorder(product, quantities[line], detail);
+					if (code != Result.ORDER_PLACED) {
+						code = detail.getResultCode();
+					}
+				}
+				result.addDetail(detail);
+			}
+			result.setTransactionTotal(
+					String.valueOf(transaction.getTotal()));
+		} finally {
+			lock.unlock();
+		}
+		result.setItemQuantity(String.valueOf(quantity));
+		result.setItemTotal(String.valueOf(total));
+		result.setResultCode(code);
+		return result;
+	}
+
+	/**
+	 * Checks if a member's current transaction is empty and if so, removes the
+	 * transaction. A member without a transaction gets NO_TRANSACTION.
+	 * 
+	 * @param (via request) memberId id of member
+	 * @return result
+	 */
+	public Result checkTransaction(Request request) {
+		return checkTransaction(Member.parseId(request.getMemberId()));
+	}
+
+	/**
+	 * Checks the current transaction of a member, taking the member number
+	 * as a number.
+	 * 
+	 * @param memberNumber the number of the member
+	 * @return result as for checkTransaction(Request)
+	 */
+	public Result checkTransaction(int memberNumber) {
+		return apply(() -> applyCheckTransaction(memberNumber));
+	}
+
+	/**
+	 * Checks a transaction on behalf of checkTransaction.
+	 */
+	private Result applyCheckTransaction(int memberNumber) {
+		Result result = new Result();
+		Member member = members.search(memberNumber);
+		if (member == null) {
+			result.setResultCode(Result.NO_SUCH_MEMBER);
+			return result;
+		}
+		Lock lock = memberLocks.get(member.getNumber());
+		lock.lock();
+		try {
+			if (member.getCurrentTransaction() == null) {
+				result.setResultCode(Result.NO_TRANSACTION);
+				return result;
+			}
+			if (member.getCurrentTransaction().isEmpty()) {
+				sales.remove(member.getCurrentTransaction());
+				member.removeCurrentTransaction();
+				journal(TRANSACTION_REMOVED,
+						output -> output.writeInt(member.getNumber()));
+				result.setResultCode(Result.TRANSACTION_EMPTY);
+				return result;
+			}
+			result.setResultCode(Result.OPERATION_COMPLETED);
+			result.setTransactionTotal(
+					String.valueOf(member.getCurrentTransaction().getTotal()));
+		} finally {
+			lock.unlock();
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a transaction for a specific member.
+	 * 
+	 * @param (via request) member id
+	 * @return result
+	 */
+	public Result createTransaction(Request request) {
+		return createTransaction(Member.parseId(request.getMemberId()));
+	}
+
+	/**
+	 * Creates a transaction for a member, taking the member number as a
+	 * number.
+	 * 
+	 * @param memberNumber the number of the member
+	 * @return result as for createTransaction(Request)
+	 */
+	public Result createTransaction(int memberNumber) {
+		return apply(() -> applyCreateTransaction(memberNumber));
+	}
+
+	/**
+	 * Creates a transaction on behalf of createTransaction.
+	 */
+	private Result applyCreateTransaction(int memberNumber) {
+		Result result = new Result();
+		Member member = members.search(memberNumber);
+		if (member == null) {
+			result.setResultCode(Result.NO_SUCH_MEMBER);
+			return result;
+		}
+		result.setMemberFields(member);
+		Transaction transaction = new Transaction();
+		Lock lock = memberLocks.get(member.getNumber());
+		lock.lock();
+		try {
+			member.addTransaction(transaction);
+			sales.add(transaction);
+			journal(TRANSACTION_STARTED, output -> {
+				output.writeInt(member.getNumber());
+				output.writeLong(transaction.getTime());
+			});
+		} finally {
+			lock.unlock();
+		}
+		result.setResultCode(Result.OPERATION_COMPLETED);
+		return result;
+	}
+
+	/**
+	 * Handles the processing of a transaction for a specific member by
+	 * calculating change owed upon payment. A member without a transaction
+	 * gets NO_TRANSACTION.
+	 * 
+	 * @param (via request) member id, payment from customer (transactionChange)
+	 * @return result transactionChange via processing transaction
+	 */
+	public Result getChange(Request request) {
+		return getChange(Member.parseId(request.getMemberId()),
+				Double.parseDouble(request.getTransactionChange()));
+	}
+
+	/**
+	 * Pays for the current transaction of a member, taking the member number
+	 * and the payment as numbers.
+	 * 
+	 * @param memberNumber the number of the member
+	 * @param payment      the payment from the customer
+	 * @return result as for getChange(Request)
+	 */
+	public Result getChange(int memberNumber, double payment) {
+		return apply(() -> applyGetChange(memberNumber, payment));
+	}
+
+	/**
+	 * Pays for a transaction on behalf of getChange.
+	 */
+	private Result applyGetChange(int memberNumber, double payment) {
+		Result result = new Result();
+		Member member = members.search(memberNumber);
+		if (member == null) {
+			result.setResultCode(Result.NO_SUCH_MEMBER);
+			return result;
+		}
+		Lock lock = memberLocks.get(member.getNumber());
+		lock.lock();
+		try {
+			Transaction transaction = member.getCurrentTransaction();
+			if (transaction == null) {
+				result.setResultCode(Result.NO_TRANSACTION);
+				return result;
+			}
+			transaction.setPayment(payment);
+			journal(PAYMENT_MADE, output -> {
+				output.writeInt(member.getNumber());
+				output.writeDouble(transaction.getPayment());
+			});
+			if (transaction.processTransaction()) {
+				result.setTransactionChange(String.valueOf(Math.abs(
+						transaction.getPayment() - transaction.getTotal())));
+				result.setResultCode(Result.TRANSACTION_COMPLETE);
+				return result;
+			}
+		} finally {
+			lock.unlock();
+		}
+		result.setResultCode(Result.INSUFFICIENT_FUNDS);
+		return result;
+	}
+
+	/**
+	 * Processes shipments and by fulfilling orders and updating the applicable
+	 * product stocks.
+	 * 
+	 * @param (via request) order id
+	 * @return result
+	 */
+	public Result processShipments(Request request) {
+		return apply(() -> applyProcessShipments(request));
+	}
+
+	/**
+	 * Processes a shipment on behalf of processShipments.
+	 */
+	private Result applyProcessShipments(Request request) {
+		Result result = new Result();
+		Order order = orders.search(Order.parseId(request.getOrderId()));
+		if (order == null) {
+			result.setResultCode(Result.NO_ORDER_FOUND);
 		} else {
 			Product product = catalog.search(order.getProductId());
-			int quantity = order.getQuantity();
-			product.setStock(product.getStock() + quantity);
-			if (!orders.remove(order.getId())) {
-				result.setResultCode(Result.OPERATION_FAILED);
+			if (!orders.remove(order.getNumber())) {
+				result.setResultCode(Result.NO_ORDER_FOUND);
 				return result;
 			}
+			if (order.getQuantity() > 0) {
+				product.incrementStock(order.getQuantity());
+			}
 			result.setProductFields(product);
 			result.setResultCode(Result.OPERATION_COMPLETED);
 		}
 		return result;
 	}
 
+	/**
+	 * Receives a shipment of many orders at once. The orders are removed from
+	 * the order list in one pass, and the stock of each product is raised
+	 * once by the total quantity of its orders. Ids that name the same order,
+	 * such as O19 and O019, count as one; only the first of them gets a
+	 * detail result.
+	 * 
+	 * @param (via request) shipment, the ids of the orders delivered
+	 * @return result code (NO_ORDER_FOUND if any order could not be found),
+	 *         and per order a detail result with the order id and either the
+	 *         order and product fields or NO_ORDER_FOUND.
+	 */
+	public Result receiveShipment(Request request) {
+		return apply(() -> applyReceiveShipment(request));
+	}
+
+	/**
+	 * Receives a shipment on behalf of receiveShipment.
+	 */
+	private Result applyReceiveShipment(Request request) {
+		Result result = new Result();
+		Map<Integer, String> shipment = new LinkedHashMap<Integer, String>();
+		for (String orderId : request.getShipment()) {
+			shipment.putIfAbsent(Order.parseId(orderId), orderId);
+		}
+		Map<Integer, Order> received = new HashMap<Integer, Order>();
+		Map<String, Integer> quantities = new LinkedHashMap<String, Integer>();
+		for (Order order : orders.removeAll(shipment.keySet())) {
+			received.put(order.getNumber(), order);
+			quantities.merge(order.getProductId(), order.getQuantity(),
+					Integer::sum);
+		}
+		for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+			Product product = catalog.search(entry.getKey());
+			if (product != null && entry.getValue() > 0) {
+				product.incrementStock(entry.getValue());
+			}
+		}
+		result.setResultCode(Result.OPERATION_COMPLETED);
+		for (Map.Entry<Integer, String> line : shipment.entrySet()) {
+			Result detail = new Result();
+			Order order = received.get(line.getKey());
+			if (order == null) {
+				detail.setOrderId(line.getValue());
+				detail.setResultCode(Result.NO_ORDER_FOUND);
+				result.setResultCode(Result.NO_ORDER_FOUND);
+			} else {
+				detail.setOrderFields(order);
+				Product product = catalog.search(order.getProductId());
+				if (product != null) {
+					detail.setProductFields(product);
+				}
+				detail.setResultCode(Result.OPERATION_COMPLETED);
+			}
+			result.addDetail(detail);
+		}
+		return result;
+	}
+
 	/**
 	 * Method to change the price for a product by searching catalog collection.
 	 * Returns result to UI.
@@ -323,17 +1240,35 @@ public class Store implements Serializable {
 	 * @return result
 	 */
 	public Result changePrice(Request request) {
+		return apply(() -> applyChangePrice(request));
+	}
+
+	/**
+	 * Changes a price on behalf of changePrice.
+	 */
+	private Result applyChangePrice(Request request) {
 		Result result = new Result();
 		Product product = catalog.search(request.getProductId());
 		if (product == null) {
 			result.setResultCode(Result.NO_SUCH_PRODUCT);
 			return result;
 		}
-		if (product.setPrice(Double.parseDouble(request.getProductPrice()))) {
-			result.setProductName(product.getName());
-			result.setProductPrice(String.valueOf((product.getPrice())));
-			result.setResultCode(Result.OPERATION_COMPLETED);
-			return result;
+		Lock lock = productLocks.get(product.getId());
+		lock.lock();
+		try {
+			if (product.setPrice(
+					Double.parseDouble(request.getProductPrice()))) {
+				journal(PRICE_CHANGED, output -> {
+					output.writeUTF(product.getId());
+					output.writeDouble(product.getPrice());
+				});
+				result.setProductName(product.getName());
+				result.setProductPrice(String.valueOf((product.getPrice())));
+				result.setResultCode(Result.OPERATION_COMPLETED);
+				return result;
+			}
+		} finally {
+			lock.unlock();
 		}
 		result.setResultCode(Result.OPERATION_FAILED);
 		return result;
@@ -347,7 +1282,7 @@ public class Store implements Serializable {
 	 */
 	public Result searchMembership(Request request) {
 		Result result = new Result();
-		Member member = members.search(request.getMemberId());
+		Member member = members.search(Member.parseId(request.getMemberId()));
 		if (member == null) {
 			result.setResultCode(Result.NO_SUCH_MEMBER);
 		} else {
@@ -375,6 +1310,117 @@ public class Store implements Serializable {
 		return result;
 	}
 
+	/**
+	 * Searches the catalog for products whose names start with a given prefix,
+	 * ignoring case. The Iterator returned is a safe one, in the sense that
+	 * only copies of the Product fields are assembled into the objects
+	 * returned via next().
+	 * 
+	 * @param (via request) productName the start of the product name
+	 * @param (via request) limit maximum number of products, 0 for all
+	 * @return an Iterator to Result - only the Product fields are valid.
+	 */
+	public Iterator<Result> searchProductNames(Request request) {
+		return new SafeProductIterator(catalog
+				.searchPrefix(request.getProductName(), request.getLimit()));
+	}
+
+	/**
+	 * Returns an iterator to the outstanding orders for a product. The
+	 * Iterator returned is a safe one, in the sense that only copies of the
+	 * Order fields are assembled into the objects returned via next().
+	 * 
+	 * @param (via request) productId id of the product
+	 * @return an Iterator to Result - only the Order fields are valid.
+	 */
+	public Iterator<Result> getProductOrders(Request request) {
+		return new SafeOrderIterator(
+				orders.searchProduct(request.getProductId()));
+	}
+
+	/**
+	 * Returns an iterator to the products whose stock is at or below their
+	 * reorder level. The Iterator returned is a safe one, in the sense that
+	 * only copies of the Product fields are assembled into the objects
+	 * returned via next().
+	 * 
+	 * @return an Iterator to Result - only the Product fields are valid.
+	 */
+	public Iterator<Result> getLowStockProducts() {
+		return new SafeProductIterator(catalog.searchLowStock());
+	}
+
+	/**
+	 * Computes the value of the inventory as the sum of stock times price over
+	 * all products.
+	 * 
+	 * @return the inventory value
+	 */
+	public double getInventoryValue() {
+		return catalog.getValue();
+	}
+
+	/**
+	 * Getter for the number of reorders that placed a new order, since the
+	 * store was created or retrieved
+	 * 
+	 * @return reorders placed
+	 */
+	public long getOrdersPlaced() {
+		return ordersPlaced.sum();
+	}
+
+	/**
+	 * Getter for the number of reorders that were added to an outstanding
+	 * order instead of placing another one, since the store was created or
+	 * retrieved
+	 * 
+	 * @return reorders coalesced
+	 */
+	public long getOrdersCoalesced() {
+		return ordersCoalesced.sum();
+	}
+
+	/**
+	 * Getter for the number of checkpoints written since the store was
+	 * created or retrieved
+	 * 
+	 * @return checkpoints
+	 */
+	public long getCheckpoints() {
+		return checkpoints;
+	}
+
+	/**
+	 * Getter for how long the last checkpoint took, from the start of the new
+	 * journal segment until the older ones were deleted
+	 * 
+	 * @return duration in milliseconds, 0 if there was no checkpoint
+	 */
+	public double getCheckpointMillis() {
+		return checkpointNanos / 1e6;
+	}
+
+	/**
+	 * Getter for how long replaying the journal took when the store was
+	 * retrieved
+	 * 
+	 * @return duration in milliseconds
+	 */
+	public double getReplayMillis() {
+		return replayNanos / 1e6;
+	}
+
+	/**
+	 * Getter for the number of journal records replayed when the store was
+	 * retrieved
+	 * 
+	 * @return records replayed
+	 */
+	public long getRecordsReplayed() {
+		return recordsReplayed;
+	}
+
 	/**
 	 * Returns an iterator to the transactions for a specific member between two
 	 * dates
@@ -385,7 +1431,7 @@ public class Store implements Serializable {
 	 * @return iterator to the collection
 	 */
 	public Iterator<Transaction> getTransactions(Request request) {
-		Member member = members.search(request.getMemberId());
+		Member member = members.search(Member.parseId(request.getMemberId()));
 		if (member == null) {
 			return new LinkedList<Transaction>().iterator();
 		}
@@ -394,49 +1440,657 @@ public class Store implements Serializable {
 	}
 
 	/**
-	 * Retrieves a deserialized version of the store from disk
+	 * Returns an iterator to the transactions of all members between two
+	 * dates. Only the days within the period are visited.
+	 * 
+	 * @param (via request) startDate starting date for period
+	 * @param (via request) endDate ending date for period
+	 * @return iterator to the collection
+	 */
+	public Iterator<Transaction> getSales(Request request) {
+		return sales.between(request.getStartDate(), request.getEndDate());
+	}
+
+	/**
+	 * Sums up the transactions of all members between two dates.
+	 * 
+	 * @param (via request) startDate starting date for period
+	 * @param (via request) endDate ending date for period
+	 * @return result with the total of the transactions (transactionTotal)
+	 *         and the number of items sold (itemQuantity)
+	 */
+	public Result getSalesReport(Request request) {
+		Result result = new Result();
+		double total = 0;
+		int quantity = 0;
+		for (Iterator<Transaction> iterator = getSales(request); iterator
+				.hasNext();) {
+			Transaction transaction = iterator.next();
+			total += transaction.getTotal();
+			for (TransactionItem item : transaction.getItems()) {
+				quantity += item.getQuantity();
+			}
+		}
+		result.setTransactionTotal(String.valueOf(total));
+		result.setItemQuantity(String.valueOf(quantity));
+		result.setResultCode(Result.OPERATION_COMPLETED);
+		return result;
+	}
+
+	/**
+	 * Rebuilds the store-wide transaction index after deserialization, when a
+	 * snapshot saved with Java serialization is read.
+	 */
+	private void readObject(ObjectInputStream input)
+			throws IOException, ClassNotFoundException {
+		input.defaultReadObject();
+		productLocks = new StripedLock(STRIPES);
+		memberLocks = new StripedLock(STRIPES);
+		ordersPlaced = new LongAdder();
+		ordersCoalesced = new LongAdder();
+		reorders = newReorderPipeline();
+		engine = StoreEngine.fromProperty();
+		snapshotLock = new ReentrantReadWriteLock();
+		sales = new TransactionIndex();
+		for (Member member : members) {
+			for (Iterator<Transaction> iterator = member
+					.getTransactions(); iterator.hasNext();) {
+				sales.add(iterator.next());
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the store from its last snapshot on disk, and replays the
+	 * journal of the changes made since it was saved. If the store was never
+	 * saved, but has a journal, the journal is replayed onto an empty store.
+	 * The store in use until then has its queued reorders placed and its
+	 * journal closed first, so that the journal replayed is complete; once
+	 * the retrieved store takes its place, its threads are stopped. If the
+	 * store cannot be retrieved, the store in use is stopped all the same, as
+	 * it can no longer journal its changes, and no store is left in use.
 	 * 
 	 * @return a Store object
+	 * @throws NoSuchFileException if there is neither StoreData nor a journal
+	 * @throws IOException         if StoreData or the journal cannot be read,
+	 *                             or is damaged
 	 */
-	public static Store retrieve() {
+	public static synchronized Store retrieve() throws IOException {
+		Store previous = store;
+		if (previous != null) {
+			previous.flushReorders();
+			previous.closeJournal();
+		}
+		Store loaded = null;
 		try {
-			FileInputStream file = new FileInputStream("StoreData");
-			ObjectInputStream input = new ObjectInputStream(file);
-			store = (Store) input.readObject();
-			Member.retrieve(input);
-			return store;
-		} catch (IOException ioe) {
-			ioe.printStackTrace();
-			return null;
+			Path path = Paths.get(SNAPSHOT_FILE);
+			if (Files.exists(path)) {
+				loaded = readSnapshot(path);
+			} else if (!Journal.segments(JOURNAL_FILE).isEmpty()) {
+				loaded = new Store();
+			} else {
+				throw new NoSuchFileException(SNAPSHOT_FILE);
+			}
+			loaded.recover();
+		} catch (IOException | RuntimeException e) {
+			if (loaded != null) {
+				loaded.stop();
+			}
+			if (previous != null) {
+				previous.stop();
+				store = null;
+			}
+			throw e;
 		} catch (ClassNotFoundException cnfe) {
-			cnfe.printStackTrace();
-			return null;
+			if (previous != null) {
+				previous.stop();
+				store = null;
+			}
+			throw new IOException("Not a snapshot of a store", cnfe);
+		}
+		if (previous != null) {
+			previous.stop();
+		}
+		store = loaded;
+		return store;
+	}
+
+	/**
+	 * Starts over with an empty store, discarding the journal of the changes
+	 * that were not saved. StoreData is left as it is. This is the only way
+	 * the journal is discarded other than by saving.
+	 * 
+	 * @return the new store
+	 * @throws IOException if the journal cannot be deleted
+	 */
+	public static synchronized Store reset() throws IOException {
+		Store previous = store;
+		store = null;
+		if (previous != null) {
+			previous.closeJournal();
+			previous.stop();
 		}
+		deleteSegmentsBefore(Long.MAX_VALUE);
+		return instance();
 	}
 
 	/**
-	 * Serializes the Store object
+	 * Saves a snapshot of the Store object. A journaled store writes a
+	 * checkpoint, which does not hold up the operations on the store;
+	 * otherwise the snapshot is taken while no operation is in progress.
+	 * Either way, the snapshot replaces the previous one only once it is
+	 * complete.
 	 * 
 	 * @return true iff the data could be saved
 	 */
-	public static boolean save() {
+	public static synchronized boolean save() {
+		Store current = instance();
+		current.flushReorders();
+		if (current.journal != null) {
+			return current.checkpoint();
+		}
+		current.snapshotLock.writeLock().lock();
 		try {
-			FileOutputStream file = new FileOutputStream("StoreData");
-			ObjectOutputStream output = new ObjectOutputStream(file);
-			output.writeObject(store);
-			Member.save(output);
-			file.close();
+			long generation = current.nextGeneration();
+			writeSnapshot(current, generation, Paths.get(SNAPSHOT_FILE));
+			current.generation = generation;
+			deleteSegmentsBefore(generation);
 			return true;
 		} catch (IOException ioe) {
 			ioe.printStackTrace();
 			return false;
+		} finally {
+			current.snapshotLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes a snapshot without holding up the operations on this store. The
+	 * journal moves on to a new segment, and the segments before it are
+	 * replayed onto a copy of the last snapshot, which is then written as the
+	 * new snapshot; operations only wait while the segment changes. The copy
+	 * takes as much memory as the store did when it was last saved, plus the
+	 * changes since.
+	 * 
+	 * @return true iff the snapshot was written
+	 */
+	private boolean checkpoint() {
+		synchronized (Store.class) {
+			Journal current = journal;
+			if (current == null) {
+				return false;
+			}
+			long start = System.nanoTime();
+			long next = nextGeneration();
+			Store copy = null;
+			try {
+				current.rotate(next);
+				copy = generation == UNSAVED ? new Store()
+						: readSnapshot(Paths.get(SNAPSHOT_FILE));
+				if (copy.generation != generation) {
+					throw new IOException("StoreData was replaced");
+				}
+				for (long segment : Journal.segments(JOURNAL_FILE)) {
+					if (segment >= generation && segment < next) {
+						Journal.replay(JOURNAL_FILE, segment, false,
+								copy::replay);
+					}
+				}
+				writeSnapshot(copy, next, Paths.get(SNAPSHOT_FILE));
+				generation = next;
+				deleteSegmentsBefore(next);
+				checkpoints++;
+				checkpointNanos = System.nanoTime() - start;
+				return true;
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+				return false;
+			} catch (ClassNotFoundException cnfe) {
+				cnfe.printStackTrace();
+				return false;
+			} finally {
+				if (copy != null) {
+					copy.stop();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a snapshot along with its generation. A snapshot saved with Java
+	 * serialization, as the store was before SnapshotCodec, is read as well.
+	 */
+	private static Store readSnapshot(Path path)
+			throws IOException, ClassNotFoundException {
+		byte[] bytes;
+		try (FileInputStream file = new FileInputStream(path.toFile())) {
+			bytes = file.readAllBytes();
+		}
+		if (!SnapshotCodec.matches(bytes)) {
+			return readSerializedSnapshot(bytes);
+		}
+		SnapshotCodec.Decoder decoder = new SnapshotCodec.Decoder(bytes);
+		Store snapshot = decode(decoder);
+		decoder.finish();
+		snapshot.generation = decoder.getGeneration();
+		return snapshot;
+	}
+
+	private static Store readSerializedSnapshot(byte[] bytes)
+			throws IOException, ClassNotFoundException {
+		ObjectInputStream input = new ObjectInputStream(
+				new ByteArrayInputStream(bytes));
+		Store snapshot = (Store) input.readObject();
+		Member.retrieve(input);
+		snapshot.generation = 0;
+		try {
+			Order.retrieve(input);
+			snapshot.generation = input.readLong();
+		} catch (EOFException eofe) {
+			// saved before the order counter or the generation was stored;
+			// the orders read above have already reserved their ids
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Writes a snapshot to a file of its own, forces it to disk and then puts
+	 * it in the place of the given file.
+	 */
+	private static void writeSnapshot(Store snapshot, long generation,
+			Path path) throws IOException {
+		SnapshotCodec.Encoder encoder = new SnapshotCodec.Encoder(generation);
+		snapshot.encode(encoder);
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileOutputStream file = new FileOutputStream(
+				temporary.toFile())) {
+			encoder.writeTo(file);
+			file.getFD().sync();
 		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Converts a snapshot to the format of SnapshotCodec, keeping its
+	 * generation.
+	 * 
+	 * @param from the snapshot, in either format
+	 * @param to   where the converted snapshot goes, which may be the same
+	 *             file
+	 * @throws IOException            if a file cannot be read or written
+	 * @throws ClassNotFoundException if the snapshot is of another program
+	 */
+	static void convertSnapshot(Path from, Path to)
+			throws IOException, ClassNotFoundException {
+		Store snapshot = readSnapshot(from);
+		try {
+			writeSnapshot(snapshot, snapshot.generation, to);
+		} finally {
+			snapshot.stop();
+		}
+	}
+
+	/**
+	 * Encodes the contents of this store: the number high-water marks, then
+	 * the products, the members with their transactions and the orders, each
+	 * as a count followed by the entities in the order they were inserted.
+	 * The times of transactions are written as the time since the previous
+	 * transaction of the member, or since the member joined.
+	 */
+	private void encode(SnapshotCodec.Encoder encoder) {
+		encoder.writeVarInt(Member.getHighWater());
+		encoder.writeVarInt(Order.getHighWater());
+		encoder.writeVarInt(catalog.size());
+		for (Product product : catalog) {
+			encoder.writeString(product.getId());
+			encoder.writeString(product.getName());
+			encoder.writeSignedVarLong(product.getStock());
+			encoder.writeSignedVarLong(product.getReorderLevel());
+			encoder.writeAmount(product.getPrice());
+		}
+		encoder.writeVarInt(members.size());
+		for (Member member : members) {
+			encoder.writeVarInt(member.getNumber());
+			encoder.writeString(member.getName());
+			encoder.writeString(member.getAddress());
+			encoder.writeString(member.getPhone());
+			encoder.writeString(member.getFeePaid());
+			long time = member.getJoinedTime();
+			encoder.writeSignedVarLong(time);
+			List<Transaction> transactions = new ArrayList<Transaction>();
+			for (Iterator<Transaction> iterator = member
+					.getTransactions(); iterator.hasNext();) {
+				transactions.add(iterator.next());
+			}
+			encoder.writeVarInt(transactions.size());
+			for (Transaction transaction : transactions) {
+				encoder.writeSignedVarLong(transaction.getTime() - time);
+				time = transaction.getTime();
+				encoder.writeAmount(transaction.getTotal());
+				encoder.writeAmount(transaction.getPayment());
+				List<TransactionItem> items = transaction.getItems();
+				encoder.writeVarInt(items.size());
+				for (TransactionItem item : items) {
+					encoder.writeString(item.getId());
+					encoder.writeString(item.getName());
+					encoder.writeSignedVarLong(item.getQuantity());
+					encoder.writeAmount(item.getPrice());
+					encoder.writeAmount(item.getTotal());
+				}
+			}
+		}
+		encoder.writeVarInt(orders.size());
+		for (Order order : orders) {
+			encoder.writeVarInt(order.getNumber());
+			encoder.writeString(order.getProductId());
+			encoder.writeString(order.getProductName());
+			encoder.writeSignedVarLong(order.getQuantity());
+			encoder.writeSignedVarLong(order.getTime());
+		}
+	}
+
+	/**
+	 * Decodes a store encoded by encode(), rebuilding the indexes as the
+	 * entities are inserted.
+	 */
+	private static Store decode(SnapshotCodec.Decoder decoder)
+			throws IOException {
+		Store snapshot = new Store();
+		Member.reserve(decoder.readVarInt());
+		Order.reserve(decoder.readVarInt());
+		for (int products = decoder.readVarInt(); products > 0; products--) {
+			String id = decoder.readString();
+			snapshot.catalog.insert(new Product(decoder.readString(), id,
+					(int) decoder.readSignedVarLong(),
+					(int) decoder.readSignedVarLong(), decoder.readAmount()));
+		}
+		for (int members = decoder.readVarInt(); members > 0; members--) {
+			int number = decoder.readVarInt();
+			String name = decoder.readString();
+			String address = decoder.readString();
+			String phone = decoder.readString();
+			String feePaid = decoder.readString();
+			long time = decoder.readSignedVarLong();
+			Member member = new Member(number, name, address, phone, feePaid,
+					calendar(time));
+			for (int transactions = decoder
+					.readVarInt(); transactions > 0; transactions--) {
+				time += decoder.readSignedVarLong();
+				Transaction transaction = new Transaction(calendar(time));
+				double total = decoder.readAmount();
+				double payment = decoder.readAmount();
+				for (int items = decoder.readVarInt(); items > 0; items--) {
+					transaction.addItem(new TransactionItem(
+							decoder.readString(), decoder.readString(),
+							(int) decoder.readSignedVarLong(),
+							decoder.readAmount(), decoder.readAmount()));
+				}
+				transaction.setTotal(total);
+				transaction.setPayment(payment);
+				member.addTransaction(transaction);
+				snapshot.sales.add(transaction);
+			}
+			snapshot.members.insert(member);
+		}
+		for (int orders = decoder.readVarInt(); orders > 0; orders--) {
+			int number = decoder.readVarInt();
+			String productId = decoder.readString();
+			String productName = decoder.readString();
+			snapshot.orders.insert(new Order(number, productId, productName,
+					(int) decoder.readSignedVarLong(),
+					calendar(decoder.readSignedVarLong())));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Returns a generation for the next snapshot, later than that of the last
+	 * snapshot and the journal segment in use.
+	 */
+	private long nextGeneration() {
+		long last = generation;
+		Journal current = journal;
+		if (current != null) {
+			last = Math.max(last, current.getBase());
+		}
+		return Math.max(System.currentTimeMillis(), last + 1);
+	}
+
+	/**
+	 * Deletes the journal segments that a snapshot of the given generation
+	 * includes.
+	 */
+	private static void deleteSegmentsBefore(long generation)
+			throws IOException {
+		for (long segment : Journal.segments(JOURNAL_FILE)) {
+			if (segment < generation) {
+				Files.deleteIfExists(Journal.segment(JOURNAL_FILE, segment));
+			}
+		}
+	}
+
+	/**
+	 * Replays the journal segments that continue the snapshot this store was
+	 * read from, oldest first, and goes on journaling in the newest one, cut
+	 * off after its last intact record. Segments the snapshot includes are
+	 * deleted.
+	 * 
+	 * @throws IOException if a segment cannot be read or is damaged other
+	 *                     than by a torn tail
+	 */
+	private void recover() throws IOException {
+		long start = System.nanoTime();
+		long base = generation;
+		long end = -1;
+		deleteSegmentsBefore(generation);
+		List<Long> segments = Journal.segments(JOURNAL_FILE);
+		for (int index = 0; index < segments.size(); index++) {
+			base = segments.get(index);
+			end = Journal.replay(JOURNAL_FILE, base,
+					index == segments.size() - 1, this::replay);
+		}
+		replayNanos = System.nanoTime() - start;
+		openJournal(base, end);
+	}
+
+	/**
+	 * Starts the journal of a new store. Segments left by an earlier store
+	 * hold changes that were not saved, so the new store refuses to start
+	 * rather than delete them or journal on top of them.
+	 * 
+	 * @throws IllegalStateException if there are segments
+	 */
+	private void startJournal() {
+		if (Journal.Policy.fromProperty() == Journal.Policy.OFF) {
+			return;
+		}
+		try {
+			if (!Journal.segments(JOURNAL_FILE).isEmpty()) {
+				throw new IllegalStateException(JOURNAL_FILE
+						+ " holds changes that were not saved; retrieve the"
+						+ " store to apply them, or reset it to discard them");
+			}
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		openJournal(UNSAVED, -1);
+	}
+
+	/**
+	 * Starts journaling the changes to this store, and scheduling its
+	 * checkpoints, unless the journal policy is "off". A segment that has been
+	 * replayed is continued, otherwise a new one is started.
+	 * 
+	 * @param base the base of the segment
+	 * @param end  the length of the replayed segment, -1 if there was none
+	 */
+	private void openJournal(long base, long end) {
+		Journal.Policy policy = Journal.Policy.fromProperty();
+		if (policy == Journal.Policy.OFF) {
+			return;
+		}
+		try {
+			journal = end < 0 ? Journal.create(JOURNAL_FILE, policy, base)
+					: Journal.resume(JOURNAL_FILE, policy, base, end);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		checkpointer = new Checkpointer(journal, this::checkpoint);
+	}
+
+	/**
+	 * Stops journaling, before the store is replaced by the one retrieved.
+	 */
+	private void closeJournal() {
+		if (checkpointer != null) {
+			checkpointer.close();
+		}
+		Journal current = journal;
+		journal = null;
+		if (current != null) {
+			try {
+				current.close();
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Stops the threads of a store that is no longer used, such as the copy a
+	 * checkpoint is written from.
+	 */
+	private void stop() {
+		reorders.close();
+		engine.close();
+	}
+
+	/**
+	 * Applies a record read back from the journal, as the operation that
+	 * appended it did, but without journaling it again. The stock of a product
+	 * is changed by items purchased and orders received; a record that refers
+	 * to a member, product or order that is gone is skipped.
+	 * 
+	 * @param type  the type of the record
+	 * @param input the contents of the record
+	 * @throws IOException if the record cannot be read
+	 */
+	private void replay(byte type, DataInput input) throws IOException {
+		recordsReplayed++;
+		switch (type) {
+		case MEMBER_ADDED:
+			members.insert(new Member(input.readInt(),
+					Journal.readString(input), Journal.readString(input),
+					Journal.readString(input), Journal.readString(input),
+					calendar(input.readLong())));
+			break;
+		case MEMBER_REMOVED: {
+			Member member = members.search(input.readInt());
+			if (member != null && members.remove(member.getNumber())) {
+				for (Iterator<Transaction> iterator = member
+						.getTransactions(); iterator.hasNext();) {
+					sales.remove(iterator.next());
+				}
+			}
+			break;
+		}
+		case PRODUCT_ADDED: {
+			String id = input.readUTF();
+			catalog.insert(new Product(input.readUTF(), id, input.readInt(),
+					input.readInt(), input.readDouble()));
+			break;
+		}
+		case PRODUCT_REMOVED:
+			catalog.remove(input.readUTF());
+			break;
+		case ORDER_PLACED:
+			orders.insert(new Order(input.readInt(), input.readUTF(),
+					Journal.readString(input), input.readInt(),
+					calendar(input.readLong())));
+			break;
+		case ORDER_QUANTITY: {
+			Order order = orders.search(input.readInt());
+			int quantity = input.readInt();
+			if (order != null) {
+				order.setQuantity(quantity);
+			}
+			break;
+		}
+		case ORDER_RECEIVED: {
+			Order order = orders.search(input.readInt());
+			if (order != null && orders.remove(order.getNumber())) {
+				Product product = catalog.search(order.getProductId());
+				if (product != null && order.getQuantity() > 0) {
+					product.incrementStock(order.getQuantity());
+				}
+			}
+			break;
+		}
+		case PRICE_CHANGED: {
+			Product product = catalog.search(input.readUTF());
+			double price = input.readDouble();
+			if (product != null) {
+				product.setPrice(price);
+			}
+			break;
+		}
+		case TRANSACTION_STARTED: {
+			Member member = members.search(input.readInt());
+			Transaction transaction = new Transaction(
+					calendar(input.readLong()));
+			if (member != null) {
+				member.addTransaction(transaction);
+				sales.add(transaction);
+			}
+			break;
+		}
+		case ITEM_PURCHASED: {
+			Member member = members.search(input.readInt());
+			Product product = catalog.search(input.readUTF());
+			int quantity = input.readInt();
+			double price = input.readDouble();
+			if (member != null && product != null) {
+				product.setStock(product.getStock() - quantity);
+				TransactionItem item = new TransactionItem(product, quantity);
+				item.setPrice(price);
+				item.setTotal(price * quantity);
+				member.getCurrentTransaction().addItem(item);
+			}
+			break;
+		}
+		case TRANSACTION_REMOVED: {
+			Member member = members.search(input.readInt());
+			if (member != null) {
+				sales.remove(member.getCurrentTransaction());
+				member.removeCurrentTransaction();
+			}
+			break;
+		}
+		case PAYMENT_MADE: {
+			Member member = members.search(input.readInt());
+			double payment = input.readDouble();
+			if (member != null) {
+				member.getCurrentTransaction().setPayment(payment);
+			}
+			break;
+		}
+		default:
+			throw new IOException("Unknown journal record " + type);
+		}
+	}
+
+	private static Calendar calendar(long time) {
+		Calendar calendar = new GregorianCalendar();
+		calendar.setTimeInMillis(time);
+		return calendar;
 	}
 
 	/**
 	 * Returns an iterator to Member info. The Iterator returned is a safe one,
 	 * in the sense that only copies of the Member fields are assembled into the
-	 * objects returned via next().
+	 * objects returned via next(). It lists the members present when it was
+	 * created, even while members are added or removed.
 	 * 
 	 * @return an Iterator to Result - only the Member fields are valid.
 	 */
@@ -447,7 +2101,8 @@ public class Store implements Serializable {
 	/**
 	 * Returns an iterator to Product info. The Iterator returned is a safe one,
 	 * in the sense that only copies of the Product fields are assembled into
-	 * the objects returned via next().
+	 * the objects returned via next(). It lists the products present when it
+	 * was created, even while products are added.
 	 * 
 	 * @return an Iterator to Result - only the Product fields are valid.
 	 */
@@ -458,7 +2113,8 @@ public class Store implements Serializable {
 	/**
 	 * Returns an iterator to Order info. The Iterator returned is a safe one,
 	 * in the sense that only copies of the Order fields are assembled into the
-	 * objects returned via next().
+	 * objects returned via next(). It lists the orders outstanding when it was
+	 * created, even while orders are placed or received.
 	 * 
 	 * @return an Iterator to Result - only the Product fields are valid.
 	 */
@@ -0,0 +1,55 @@
+package business.facade;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.function.Supplier;
+
+/**
+ * Runs the mutating operations of Store. The default engine runs each
+ * operation on the calling thread, where the locks of the store keep
+ * concurrent operations apart. The single-writer engine hands every operation
+ * to one writer thread instead, which applies them one at a time in the order
+ * they arrived.
+ *
+ * The engine is chosen at startup with the system property store.engine:
+ * "locking" (the default) or "single-writer".
+ *
+ */
+interface StoreEngine {
+	String PROPERTY = "store.engine";
+	String LOCKING = "locking";
+	String SINGLE_WRITER = "single-writer";
+
+	/**
+	 * Runs an operation and returns its result.
+	 *
+	 * @param operation the operation
+	 * @return the result of the operation
+	 */
+	Result apply(Supplier<Result> operation);
+
+	/**
+	 * Stops the engine, once no more operations will be applied.
+	 */
+	default void close() {
+	}
+
+	/**
+	 * Creates the engine selected by the system property store.engine.
+	 *
+	 * @return the engine
+	 * @throws IllegalArgumentException if the property names no engine
+	 */
+	static StoreEngine fromProperty() {
+		String name = System.getProperty(PROPERTY, LOCKING);
+		switch (name) {
+		case LOCKING:
+			return Supplier::get;
+		case SINGLE_WRITER:
+			return new SingleWriterEngine();
+		default:
+			throw new IllegalArgumentException("Unknown engine " + name);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package business.facade;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared by keys according to their hash codes. Keys on
+ * different stripes can be locked concurrently, while the number of locks
+ * does not grow with the number of keys.
+ * 
+ */
+class StripedLock {
+	private final Lock[] locks;
+	private final int mask;
+
+	/**
+	 * Creates the stripes; their number is rounded up to a power of two.
+	 * 
+	 * @param stripes the minimum number of stripes
+	 */
+	StripedLock(int stripes) {
+		int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		locks = new Lock[size];
+		for (int index = 0; index < size; index++) {
+			locks[index] = new ReentrantLock();
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * Returns the lock of the stripe the key belongs to.
+	 * 
+	 * @param key the key to be locked
+	 * @return the lock for the key
+	 */
+	Lock get(Object key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return locks[hash & mask];
+	}
+}
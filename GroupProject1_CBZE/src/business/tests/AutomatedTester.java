@@ -3,8 +3,18 @@ package business.tests;
 /**
  * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
  */
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import business.entities.Inventory;
 import business.entities.Member;
+import business.entities.Order;
 import business.entities.Product;
+import business.entities.Transaction;
+import business.entities.TransactionHistory;
 import business.facade.Request;
 import business.facade.Result;
 import business.facade.Store;
@@ -87,6 +97,42 @@ public class AutomatedTester {
 		}
 	}
 
+	/**
+	 * Tests the inventory aggregates over the products just added, and the
+	 * columns of an inventory whose segments hold four slots each.
+	 */
+	public void testInventory() {
+		double value = 0;
+		Set<String> lowStock = new HashSet<String>();
+		for (int count = 0; count < products.length; count++) {
+			int stock = Integer.parseInt(productStock[count]);
+			value += stock * Double.parseDouble(productPrice[count]);
+			if (stock <= Integer.parseInt(productReorderLevel[count])) {
+				lowStock.add(productId[count]);
+			}
+		}
+		assert Math.abs(Store.instance().getInventoryValue() - value) < 0.001;
+		for (Iterator<Result> iterator = Store.instance()
+				.getLowStockProducts(); iterator.hasNext();) {
+			assert lowStock.remove(iterator.next().getProductId());
+		}
+		assert lowStock.isEmpty();
+		Inventory inventory = new Inventory(2);
+		for (int slot = 0; slot < 10; slot++) {
+			assert inventory.allocate(slot, 4, 1.5) == slot;
+		}
+		assert inventory.getStock(9) == 9;
+		assert inventory.getTotalStock() == 45;
+		assert inventory.getLowStockSlots().length == 5;
+		assert inventory.tryDecrementStock(3, 3);
+		assert !inventory.tryDecrementStock(3, 1);
+		assert inventory.incrementStock(3, 2) == 2;
+		inventory.release(9);
+		assert inventory.getTotalStock() == 35;
+		assert inventory.getTotalValue() == 35 * 1.5;
+		assert inventory.getLowStockSlots().length == 5;
+	}
+
 	/**
 	 * Tests removing a member, ID M6.
 	 */
@@ -97,6 +143,32 @@ public class AutomatedTester {
 		System.out.println("Member " + result.getMemberId() + " removed.");
 	}
 
+	/**
+	 * Tests converting member and order ids to their numbers. Malformed ids
+	 * convert to 0 and match no member.
+	 */
+	public void testIds() {
+		assert Member.parseId("M12") == 12;
+		assert Order.parseId("O7") == 7;
+		assert Order.parseId("M7") == 0;
+		String[] malformed = { null, "", "M", "m1", "O1", "M1a", "M-1",
+				"M1234567890" };
+		for (String id : malformed) {
+			assert Member.parseId(id) == 0;
+		}
+		Request request = Request.builder().memberId("M1").build();
+		Result result = Store.instance().searchMembership(request);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		assert result.getMemberId().equals("M1");
+		assert Member.parseId(result.getMemberId()) == 1;
+		request = Request.builder().memberId("M1x").build();
+		result = Store.instance().searchMembership(request);
+		assert result.getResultCode() == Result.NO_SUCH_MEMBER;
+		request = Request.builder().memberId("M6").build();
+		result = Store.instance().searchMembership(request);
+		assert result.getResultCode() == Result.NO_SUCH_MEMBER;
+	}
+
 	/**
 	 * Test's processing shipments. Will process 18 of the shipments generated.
 	 */
@@ -112,6 +184,51 @@ public class AutomatedTester {
 
 	}
 
+	/**
+	 * Tests looking up outstanding orders by product after the shipments have
+	 * been processed.
+	 */
+	public void testProductOrders() {
+		Request.instance().setProductId("P21");
+		Iterator<Result> iterator = Store.instance()
+				.getProductOrders(Request.instance());
+		assert iterator.hasNext();
+		assert iterator.next().getOrderId().equals("O21");
+		assert !iterator.hasNext();
+		Request.instance().setProductId("P1");
+		iterator = Store.instance().getProductOrders(Request.instance());
+		assert !iterator.hasNext();
+	}
+
+	/**
+	 * Tests receiving several orders in one shipment. The shipment lists an
+	 * order three times, once with a leading zero, and an order that does not
+	 * exist.
+	 */
+	public void testReceiveShipment() {
+		Request request = Request.builder().productId("P19").build();
+		int stock = Integer.parseInt(
+				Store.instance().searchCatalog(request).getProductStock());
+		request = Request.builder().shipmentOrder("O19").shipmentOrder("O99")
+				.shipmentOrder("O20").shipmentOrder("O19").shipmentOrder("O019")
+				.build();
+		Result result = Store.instance().receiveShipment(request);
+		assert result.getResultCode() == Result.NO_ORDER_FOUND;
+		Iterator<Result> details = result.getDetails();
+		Result detail = details.next();
+		assert detail.getResultCode() == Result.OPERATION_COMPLETED;
+		assert detail.getProductId().equals("P19");
+		assert Integer.parseInt(detail.getProductStock()) == stock
+				+ Integer.parseInt(detail.getOrderQuantity());
+		detail = details.next();
+		assert detail.getResultCode() == Result.NO_ORDER_FOUND;
+		assert detail.getOrderId().equals("O99");
+		assert details.next().getProductId().equals("P20");
+		assert !details.hasNext();
+		request = Request.builder().productId("P19").build();
+		assert !Store.instance().getProductOrders(request).hasNext();
+	}
+
 	/**
 	 * Test's checking out a member's items.
 	 */
@@ -124,7 +241,7 @@ public class AutomatedTester {
 			Request.instance().setItemQuantity(checkOutListQuantity[count]);
 			result = Store.instance().purchaseProducts(Request.instance());
 			assert result.getResultCode() == Result.OPERATION_COMPLETED
-					|| result.getResultCode() == Result.ORDER_PLACED;
+					|| result.getResultCode() == Result.REORDER_QUEUED;
 		}
 		result = Store.instance().checkTransaction(Request.instance());
 		assert result.getResultCode() == Result.OPERATION_COMPLETED;
@@ -133,6 +250,183 @@ public class AutomatedTester {
 		assert result.getResultCode() == Result.TRANSACTION_COMPLETE;
 	}
 
+	/**
+	 * Tests the store-wide sales report for today, which covers the checkout
+	 * of testCheckOut.
+	 */
+	public void testSalesReport() {
+		Calendar today = new GregorianCalendar();
+		today.set(Calendar.HOUR_OF_DAY, 0);
+		today.set(Calendar.MINUTE, 0);
+		today.set(Calendar.SECOND, 0);
+		today.set(Calendar.MILLISECOND, 0);
+		Request.instance().setStartDate(today);
+		Request.instance().setEndDate(today);
+		Result result = Store.instance().getSalesReport(Request.instance());
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		assert result.getItemQuantity().equals("16");
+		assert result.getTransactionTotal().equals("125.0");
+	}
+
+	/**
+	 * Tests checking out a basket in one call. Lines for the same product are
+	 * merged, and a basket that cannot be covered leaves the stock unchanged.
+	 */
+	public void testBasketCheckOut() {
+		Request request = Request.builder().memberId("M2").build();
+		Result result = Store.instance().createTransaction(request);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		request = Request.builder().memberId("M2").basketLine("P15", 1)
+				.basketLine("P21", 1000).build();
+		result = Store.instance().purchaseBasket(request);
+		assert result.getResultCode() == Result.OPERATION_FAILED;
+		assert result.getProductId().equals("P21");
+		request = Request.builder().productId("P15").build();
+		assert Store.instance().searchCatalog(request).getProductStock()
+				.equals("51");
+		request = Request.builder().memberId("M2").basketLine("P15", 1)
+				.basketLine("P99", 1).build();
+		result = Store.instance().purchaseBasket(request);
+		assert result.getResultCode() == Result.NO_SUCH_PRODUCT;
+		assert result.getProductId().equals("P99");
+		request = Request.builder().memberId("M2").basketLine("P16", 2)
+				.basketLine("P15", 1).basketLine("P16", 1).build();
+		result = Store.instance().purchaseBasket(request);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		assert result.getItemQuantity().equals("4");
+		assert result.getTransactionTotal().equals("157.5");
+		Iterator<Result> details = result.getDetails();
+		Result detail = details.next();
+		assert detail.getProductId().equals("P16");
+		assert detail.getItemQuantity().equals("3");
+		assert detail.getProductStock().equals("59");
+		assert details.next().getProductId().equals("P15");
+		assert !details.hasNext();
+		request = Request.builder().memberId("M2").build();
+		result = Store.instance().checkTransaction(request);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		request = Request.builder().memberId("M2").transactionChange("200")
+				.build();
+		result = Store.instance().getChange(request);
+		assert result.getResultCode() == Result.TRANSACTION_COMPLETE;
+	}
+
+	/**
+	 * Tests that quantities that are not positive are refused, one item at a
+	 * time and in a basket, and leave the stock and the transaction as they
+	 * were.
+	 */
+	public void testNonPositiveQuantity() {
+		Request request = Request.builder().memberId("M2").build();
+		Result result = Store.instance().createTransaction(request);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		for (String quantity : new String[] { "-100", "0" }) {
+			request = Request.builder().memberId("M2").productId("P15")
+					.itemQuantity(quantity).build();
+			result = Store.instance().purchaseProducts(request);
+			assert result.getResultCode() == Result.OPERATION_FAILED;
+		}
+		request = Request.builder().memberId("M2").basketLine("P16", 1)
+				.basketLine("P15", -5).build();
+		result = Store.instance().purchaseBasket(request);
+		assert result.getResultCode() == Result.OPERATION_FAILED;
+		assert result.getProductId().equals("P15");
+		request = Request.builder().productId("P15").build();
+		assert Store.instance().searchCatalog(request).getProductStock()
+				.equals("50");
+		request = Request.builder().productId("P16").build();
+		assert Store.instance().searchCatalog(request).getProductStock()
+				.equals("59");
+		request = Request.builder().memberId("M2").build();
+		result = Store.instance().checkTransaction(request);
+		assert result.getResultCode() == Result.TRANSACTION_EMPTY;
+		Inventory inventory = new Inventory(2);
+		inventory.allocate(0, 0, 1.0);
+		for (int quantity = -1; quantity <= 0; quantity++) {
+			try {
+				inventory.tryDecrementStock(0, quantity);
+				assert false;
+			} catch (IllegalArgumentException iae) {
+			}
+			try {
+				inventory.incrementStock(0, quantity);
+				assert false;
+			} catch (IllegalArgumentException iae) {
+			}
+		}
+		assert inventory.getStock(0) == 0;
+	}
+
+	/**
+	 * Tests that a member without a transaction can neither buy nor pay, and
+	 * that no stock is taken for the purchase.
+	 */
+	public void testNoTransaction() {
+		Request request = Request.builder().memberName("Nobody")
+				.memberAddress("0000").memberPhone("000000").memberFeePaid("y")
+				.build();
+		String memberId = Store.instance().addMember(request).getMemberId();
+		request = Request.builder().memberId(memberId).productId("P15")
+				.itemQuantity("4").build();
+		Result result = Store.instance().purchaseProducts(request);
+		assert result.getResultCode() == Result.NO_TRANSACTION;
+		request = Request.builder().memberId(memberId).basketLine("P16", 1)
+				.basketLine("P15", 2).build();
+		result = Store.instance().purchaseBasket(request);
+		assert result.getResultCode() == Result.NO_TRANSACTION;
+		request = Request.builder().productId("P15").build();
+		assert Store.instance().searchCatalog(request).getProductStock()
+				.equals("50");
+		request = Request.builder().productId("P16").build();
+		assert Store.instance().searchCatalog(request).getProductStock()
+				.equals("59");
+		request = Request.builder().memberId(memberId).transactionChange("10")
+				.build();
+		result = Store.instance().getChange(request);
+		assert result.getResultCode() == Result.NO_TRANSACTION;
+		result = Store.instance().checkTransaction(request);
+		assert result.getResultCode() == Result.NO_TRANSACTION;
+	}
+
+	/**
+	 * Tests that sales of a product that is already on order add to the
+	 * outstanding order instead of placing new ones, once the reorder pipeline
+	 * has caught up, and that an order is still found by its number once its
+	 * quantity has grown.
+	 */
+	public void testReorderCoalescing() {
+		Request request = Request.builder().productName("prod22")
+				.productId("P22").productStock("4").productReorderLevel("2")
+				.productPrice("5.00").build();
+		Result result = Store.instance().addProduct(request);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		long coalesced = Store.instance().getOrdersCoalesced();
+		request = Request.builder().memberId("M3").build();
+		Store.instance().createTransaction(request);
+		request = Request.builder().memberId("M3").productId("P22")
+				.itemQuantity("2").build();
+		result = Store.instance().purchaseProducts(request);
+		assert result.getResultCode() == Result.REORDER_QUEUED;
+		request = Request.builder().memberId("M3").productId("P22")
+				.itemQuantity("1").build();
+		result = Store.instance().purchaseProducts(request);
+		assert result.getResultCode() == Result.REORDER_QUEUED;
+		Store.instance().flushReorders();
+		assert Store.instance().getOrdersCoalesced() == coalesced + 2;
+		Iterator<Result> orders = Store.instance().getProductOrders(request);
+		assert orders.next().getOrderQuantity().equals("7");
+		assert !orders.hasNext();
+		Set<Order> placed = new HashSet<Order>();
+		Order order = new Order("P22", "prod22", 2);
+		placed.add(order);
+		order.addQuantity(5);
+		assert placed.contains(order);
+		request = Request.builder().memberId("M3").transactionChange("20")
+				.build();
+		result = Store.instance().getChange(request);
+		assert result.getResultCode() == Result.TRANSACTION_COMPLETE;
+	}
+
 	/**
 	 * Test change product price
 	 */
@@ -143,15 +437,108 @@ public class AutomatedTester {
 		assert result.getResultCode() == Result.OPERATION_COMPLETED;
 	}
 
+	/**
+	 * Tests searching product names by prefix, limited to five products.
+	 */
+	public void testSearchProductNames() {
+		Request.instance().setProductName("PROD1");
+		Request.instance().setLimit(5);
+		Iterator<Result> iterator = Store.instance()
+				.searchProductNames(Request.instance());
+		String[] expected = { "prod1", "prod10", "prod11", "prod12",
+				"prod13" };
+		for (int count = 0; count < expected.length; count++) {
+			assert iterator.hasNext();
+			assert iterator.next().getProductName().equals(expected[count]);
+		}
+		assert !iterator.hasNext();
+		Request.instance().setLimit(0);
+	}
+
+	/**
+	 * Tests that a built request cannot be changed and that its builder cannot
+	 * be reused.
+	 */
+	public void testRequestBuilder() {
+		Request.Builder builder = Request.builder().productId("P1");
+		Request request = builder.build();
+		assert request.getProductId().equals("P1");
+		try {
+			request.setProductId("P2");
+			assert false;
+		} catch (UnsupportedOperationException uoe) {
+			assert request.getProductId().equals("P1");
+		}
+		try {
+			builder.productId("P2");
+			assert false;
+		} catch (IllegalStateException ise) {
+		}
+	}
+
+	/**
+	 * Tests a transaction history. Transactions added out of order are listed
+	 * by time, a range lists only the transactions within it, equal start and
+	 * end dates select the whole day, and removing the current transaction
+	 * makes the latest remaining one current.
+	 */
+	public void testTransactionHistory() {
+		int[] days = { 3, 1, 4, 1, 5 };
+		Transaction[] added = new Transaction[days.length];
+		TransactionHistory history = new TransactionHistory();
+		Member member = new Member("history", "history", "history", "y");
+		for (int count = 0; count < days.length; count++) {
+			added[count] = new Transaction(new GregorianCalendar(2021,
+					Calendar.MARCH, days[count], 12, count));
+			history.add(added[count]);
+			member.addTransaction(added[count]);
+		}
+		assert history.size() == days.length;
+		assert history.getCurrent() == added[4];
+		long previous = Long.MIN_VALUE;
+		for (Transaction transaction : history) {
+			assert transaction.getTime() >= previous;
+			previous = transaction.getTime();
+		}
+		Calendar start = new GregorianCalendar(2021, Calendar.MARCH, 1);
+		Calendar end = new GregorianCalendar(2021, Calendar.MARCH, 3, 23, 59);
+		Iterator<Transaction> range = history.between(start.getTimeInMillis(),
+				end.getTimeInMillis());
+		assert range.next() == added[1];
+		assert range.next() == added[3];
+		assert range.next() == added[0];
+		assert !range.hasNext();
+		Calendar day = new GregorianCalendar(2021, Calendar.MARCH, 4);
+		range = member.getTransactionsBetweenDates(day, day);
+		assert range.next() == added[2];
+		assert !range.hasNext();
+		assert history.remove(added[4]);
+		assert !history.remove(added[4]);
+		assert history.getCurrent() == added[2];
+		assert history.size() == days.length - 1;
+	}
+
 	/**
 	 * Tests all applicable methods
 	 */
 	public void testAll() {
 		testAddMember();
 		testAddProduct();
+		testInventory();
 		testRemoveMember();
+		testIds();
 		testProcessShipment();
+		testProductOrders();
+		testReceiveShipment();
 		testCheckOut();
+		testSalesReport();
+		testBasketCheckOut();
+		testNonPositiveQuantity();
+		testNoTransaction();
+		testReorderCoalescing();
 		testChangePrice();
+		testSearchProductNames();
+		testRequestBuilder();
+		testTransactionHistory();
 	}
 }
\ No newline at end of file
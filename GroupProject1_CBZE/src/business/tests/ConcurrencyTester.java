@@ -0,0 +1,632 @@
+package business.tests;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import business.entities.Member;
+import business.entities.Transaction;
+import business.facade.Request;
+import business.facade.Result;
+import business.facade.Store;
+import server.CheckoutClient;
+import server.CheckoutServer;
+import server.HttpApi;
+import server.StoreClient;
+import server.StoreCommands.Reply;
+import server.StoreServer;
+
+/**
+ * The ConcurrencyTester class stresses the Store with several checkout lanes
+ * running at the same time. Each lane is a thread with a member of its own,
+ * and every call carries a freshly built request. Further lanes check out
+ * over the network through StoreServer, CheckoutServer and HttpApi. Like
+ * AutomatedTester it relies on asserts, so it should be run with assertions
+ * enabled (-ea).
+ * 
+ */
+public class ConcurrencyTester {
+	private static final int LANES = 8;
+	private static final int INITIAL_STOCK = 20000;
+	private static final String PRODUCT_ID = "STRESS1";
+	private static final int MEMBERS_PER_LANE = 5000;
+	private static final int NETWORK_LANES = 1000;
+	private static final int ITEMS_PER_BASKET = 5;
+	private static final String NETWORK_PRODUCT_ID = "NET1";
+	private static final String BINARY_PRODUCT_ID = "BIN1";
+	private static final int SHIPMENT_ORDERS = 5000;
+	private static final int LISTING_MEMBERS = 1000;
+	private static final int LISTINGS = 200;
+	private static final String REPORT_PRODUCT_ID = "REPORT1";
+	private static final int REPORT_ITEMS = 20000;
+	private static final int HISTORY_TRANSACTIONS = 2000;
+	private static final int HTTP_LANES = 64;
+
+	/**
+	 * Tests all lanes buying the same product until it is sold out. The stock
+	 * must never be seen below 0, and the quantities sold must add up to the
+	 * initial stock. All reorders must go to the order placed with the product.
+	 */
+	public void testConcurrentCheckout() {
+		Request request = Request.builder().productName("stress product")
+				.productId(PRODUCT_ID)
+				.productStock(String.valueOf(INITIAL_STOCK))
+				.productReorderLevel("10").productPrice("1.00").build();
+		Result result = Store.instance().addProduct(request);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		AtomicInteger sold = new AtomicInteger();
+		AtomicBoolean negative = new AtomicBoolean();
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread watcher = new Thread(() -> {
+			Request watch = Request.builder().productId(PRODUCT_ID).build();
+			while (running.get()) {
+				if (stockOf(Store.instance().searchCatalog(watch)) < 0) {
+					negative.set(true);
+				}
+			}
+		});
+		Thread[] lanes = new Thread[LANES];
+		for (int lane = 0; lane < LANES; lane++) {
+			lanes[lane] = new Thread(() -> checkOut(sold));
+		}
+		long start = System.nanoTime();
+		watcher.start();
+		for (Thread lane : lanes) {
+			lane.start();
+		}
+		join(lanes);
+		running.set(false);
+		join(watcher);
+		long elapsed = System.nanoTime() - start;
+		int stock = stockOf(Store.instance().searchCatalog(request));
+		assert !negative.get();
+		assert stock == 0;
+		assert sold.get() == INITIAL_STOCK;
+		Store.instance().flushReorders();
+		Iterator<Result> orders = Store.instance().getProductOrders(request);
+		assert orders.next() != null && !orders.hasNext();
+		System.out.println(LANES + " lanes sold " + sold.get() + " items in "
+				+ elapsed / 1000000 + " ms, remaining stock " + stock);
+	}
+
+	/**
+	 * One checkout lane: creates a member and a transaction, then buys the
+	 * product in quantities of 1 to 3 until a single item can no longer be
+	 * bought.
+	 * 
+	 * @param sold counter of the items sold by all lanes
+	 */
+	private void checkOut(AtomicInteger sold) {
+		Request request = Request.builder().memberName("lane")
+				.memberAddress("lane").memberPhone("lane").memberFeePaid("y")
+				.build();
+		Result result = Store.instance().addMember(request);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		String memberId = result.getMemberId();
+		request = Request.builder().memberId(memberId).build();
+		result = Store.instance().createTransaction(request);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		for (int count = 0;; count++) {
+			int quantity = 1 + count % 3;
+			request = Request.builder().memberId(memberId)
+					.productId(PRODUCT_ID)
+					.itemQuantity(String.valueOf(quantity)).build();
+			result = Store.instance().purchaseProducts(request);
+			if (result.getResultCode() == Result.OPERATION_COMPLETED
+					|| result.getResultCode() == Result.ORDER_PLACED
+					|| result.getResultCode() == Result.ORDER_COALESCED
+					|| result.getResultCode() == Result.REORDER_QUEUED) {
+				sold.addAndGet(quantity);
+			} else if (quantity == 1) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Tests all lanes adding members at the same time. Every member must get
+	 * an id of its own.
+	 */
+	public void testConcurrentIds() {
+		Set<String> ids = ConcurrentHashMap.newKeySet();
+		Thread[] lanes = new Thread[LANES];
+		for (int lane = 0; lane < LANES; lane++) {
+			lanes[lane] = new Thread(() -> {
+				Request request = Request.builder().memberName("id")
+						.memberAddress("id").memberPhone("id")
+						.memberFeePaid("y").build();
+				for (int count = 0; count < MEMBERS_PER_LANE; count++) {
+					Result result = Store.instance().addMember(request);
+					assert result.getResultCode() == Result.OPERATION_COMPLETED;
+					ids.add(result.getMemberId());
+				}
+			});
+		}
+		long start = System.nanoTime();
+		for (Thread lane : lanes) {
+			lane.start();
+		}
+		join(lanes);
+		long elapsed = System.nanoTime() - start;
+		assert ids.size() == LANES * MEMBERS_PER_LANE;
+		System.out.println(LANES + " lanes added " + ids.size()
+				+ " members with unique ids in " + elapsed / 1000000 + " ms");
+	}
+
+	/**
+	 * Tests listing the members while a lane keeps replacing them: each round
+	 * adds a member and then removes the oldest one. Every listing must see
+	 * the members of one point in time, so it holds either the initial number
+	 * of members or one more, and never fails.
+	 */
+	public void testSnapshotListing() {
+		Request request = Request.builder().memberName("snapshot")
+				.memberAddress("snapshot").memberPhone("snapshot")
+				.memberFeePaid("y").build();
+		Deque<String> added = new ArrayDeque<String>();
+		for (int count = 0; count < LISTING_MEMBERS; count++) {
+			added.add(Store.instance().addMember(request).getMemberId());
+		}
+		int initial = 0;
+		for (Iterator<Result> members = Store.instance()
+				.getMembers(); members.hasNext(); members.next()) {
+			initial++;
+		}
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread writer = new Thread(() -> {
+			while (running.get()) {
+				added.add(Store.instance().addMember(request).getMemberId());
+				Request remove = Request.builder().memberId(added.remove())
+						.build();
+				Store.instance().removeMember(remove);
+			}
+		});
+		writer.start();
+		int listings = 0;
+		long start = System.nanoTime();
+		try {
+			while (listings < LISTINGS) {
+				int count = 0;
+				for (Iterator<Result> members = Store.instance()
+						.getMembers(); members.hasNext(); members.next()) {
+					count++;
+				}
+				assert count == initial || count == initial + 1;
+				listings++;
+			}
+		} finally {
+			running.set(false);
+			join(writer);
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println(listings + " listings of " + initial
+				+ " members during writes in " + elapsed / 1000000 + " ms");
+	}
+
+	/**
+	 * Tests the sales report for today while a lane keeps adding items to its
+	 * transaction. Every report must be made without failing, and count no
+	 * fewer items than the one before it.
+	 */
+	public void testReportDuringCheckout() {
+		Request request = Request.builder().productName("report product")
+				.productId(REPORT_PRODUCT_ID)
+				.productStock(String.valueOf(REPORT_ITEMS))
+				.productReorderLevel("0").productPrice("1.00").build();
+		Store.instance().addProduct(request);
+		request = Request.builder().memberName("report")
+				.memberAddress("report").memberPhone("report")
+				.memberFeePaid("y").build();
+		int number = Integer.parseInt(
+				Store.instance().addMember(request).getMemberId().substring(1));
+		Store.instance().createTransaction(number);
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread lane = new Thread(() -> {
+			for (int count = 0; count < REPORT_ITEMS
+					&& running.get(); count++) {
+				Store.instance().purchaseProducts(number, REPORT_PRODUCT_ID, 1);
+			}
+			running.set(false);
+		});
+		Calendar today = new GregorianCalendar();
+		today.set(Calendar.HOUR_OF_DAY, 0);
+		today.set(Calendar.MINUTE, 0);
+		today.set(Calendar.SECOND, 0);
+		today.set(Calendar.MILLISECOND, 0);
+		Request report = Request.builder().startDate(today).endDate(today)
+				.build();
+		int reports = 0;
+		int previous = 0;
+		long start = System.nanoTime();
+		lane.start();
+		try {
+			while (running.get()) {
+				Result result = Store.instance().getSalesReport(report);
+				int quantity = Integer.parseInt(result.getItemQuantity());
+				assert quantity >= previous;
+				previous = quantity;
+				reports++;
+			}
+		} finally {
+			running.set(false);
+			join(lane);
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println(reports + " sales reports during checkout in "
+				+ elapsed / 1000000 + " ms");
+	}
+
+	/**
+	 * Tests listing a member's transactions for today while a lane keeps
+	 * starting new ones for the member. Every listing must be made without
+	 * failing, hold no gaps, and list no fewer transactions than the one
+	 * before it.
+	 */
+	public void testHistoryDuringCheckout() {
+		Request request = Request.builder().memberName("history")
+				.memberAddress("history").memberPhone("history")
+				.memberFeePaid("y").build();
+		String memberId = Store.instance().addMember(request).getMemberId();
+		int number = Integer.parseInt(memberId.substring(1));
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread lane = new Thread(() -> {
+			for (int count = 0; count < HISTORY_TRANSACTIONS
+					&& running.get(); count++) {
+				Store.instance().createTransaction(number);
+			}
+			running.set(false);
+		});
+		Calendar today = new GregorianCalendar();
+		Request listing = Request.builder().memberId(memberId)
+				.startDate(today).endDate(today).build();
+		int listings = 0;
+		int previous = 0;
+		long start = System.nanoTime();
+		lane.start();
+		try {
+			while (running.get()) {
+				int count = 0;
+				for (Iterator<Transaction> transactions = Store.instance()
+						.getTransactions(listing); transactions.hasNext();) {
+					assert transactions.next() != null;
+					count++;
+				}
+				assert count >= previous;
+				previous = count;
+				listings++;
+			}
+		} finally {
+			running.set(false);
+			join(lane);
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println(listings + " listings of a member's transactions"
+				+ " during checkout in " + elapsed / 1000000 + " ms");
+	}
+
+	/**
+	 * Tests receiving thousands of orders in bulk. Two lanes receive
+	 * overlapping halves of the shipment at the same time; every order must be
+	 * received exactly once and raise its product's stock by its quantity.
+	 */
+	public void testBulkShipment() {
+		Request.Builder[] halves = { Request.builder(), Request.builder() };
+		for (int count = 0; count < SHIPMENT_ORDERS; count++) {
+			Request request = Request.builder().productName("bulk" + count)
+					.productId("BULK" + count).productStock("0")
+					.productReorderLevel("3").productPrice("1.00").build();
+			Store.instance().addProduct(request);
+			String orderId = Store.instance().getProductOrders(request).next()
+					.getOrderId();
+			if (count < SHIPMENT_ORDERS * 3 / 4) {
+				halves[0].shipmentOrder(orderId);
+			}
+			if (count >= SHIPMENT_ORDERS / 4) {
+				halves[1].shipmentOrder(orderId);
+			}
+		}
+		AtomicInteger received = new AtomicInteger();
+		Thread[] lanes = new Thread[halves.length];
+		for (int lane = 0; lane < lanes.length; lane++) {
+			Request request = halves[lane].build();
+			lanes[lane] = new Thread(() -> {
+				Iterator<Result> details = Store.instance()
+						.receiveShipment(request).getDetails();
+				while (details.hasNext()) {
+					if (details.next()
+							.getResultCode() == Result.OPERATION_COMPLETED) {
+						received.incrementAndGet();
+					}
+				}
+			});
+		}
+		long start = System.nanoTime();
+		for (Thread lane : lanes) {
+			lane.start();
+		}
+		join(lanes);
+		long elapsed = System.nanoTime() - start;
+		assert received.get() == SHIPMENT_ORDERS;
+		for (int count = 0; count < SHIPMENT_ORDERS; count++) {
+			Request request = Request.builder().productId("BULK" + count)
+					.build();
+			assert stockOf(Store.instance().searchCatalog(request)) == 6;
+		}
+		System.out.println("Received " + received.get()
+				+ " orders in bulk in " + elapsed / 1000000 + " ms");
+	}
+
+	/**
+	 * Tests many point-of-sale lanes checking out over the network at the
+	 * same time, each on a connection of its own. Every lane pipelines its
+	 * basket. The stock must drop by exactly the number of items sold.
+	 */
+	public void testNetworkLanes() {
+		try (StoreServer server = new StoreServer(0)) {
+			server.start();
+			int port = server.getPort();
+			try (StoreClient client = new StoreClient("localhost", port)) {
+				Reply reply = client.call("addProduct", "productName",
+						"network product", "productId", NETWORK_PRODUCT_ID,
+						"productStock", String.valueOf(INITIAL_STOCK),
+						"productReorderLevel", "0", "productPrice", "2.50");
+				assert reply.getResultCode() == Result.OPERATION_COMPLETED;
+			}
+			AtomicInteger sold = new AtomicInteger();
+			Thread[] lanes = new Thread[NETWORK_LANES];
+			for (int lane = 0; lane < NETWORK_LANES; lane++) {
+				lanes[lane] = new Thread(() -> {
+					try (StoreClient client = new StoreClient("localhost",
+							port)) {
+						sold.addAndGet(checkOut(client));
+					} catch (IOException ioe) {
+						throw new UncheckedIOException(ioe);
+					}
+				});
+			}
+			long start = System.nanoTime();
+			for (Thread lane : lanes) {
+				lane.start();
+			}
+			join(lanes);
+			long elapsed = System.nanoTime() - start;
+			Request request = Request.builder().productId(NETWORK_PRODUCT_ID)
+					.build();
+			int stock = stockOf(Store.instance().searchCatalog(request));
+			assert sold.get() == NETWORK_LANES * ITEMS_PER_BASKET;
+			assert stock == INITIAL_STOCK - sold.get();
+			System.out.println(NETWORK_LANES + " network lanes sold "
+					+ sold.get() + " items in " + elapsed / 1000000 + " ms");
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * One network lane: joins as a member, pipelines a basket and pays.
+	 *
+	 * @param client the connection of the lane
+	 * @return the number of items sold
+	 */
+	private int checkOut(StoreClient client) throws IOException {
+		Reply reply = client.call("addMember", "memberName", "lane",
+				"memberAddress", "lane", "memberPhone", "lane",
+				"memberFeePaid", "y");
+		assert reply.getResultCode() == Result.OPERATION_COMPLETED;
+		String memberId = reply.getStatus().get("memberId");
+		reply = client.call("createTransaction", "memberId", memberId);
+		assert reply.getResultCode() == Result.OPERATION_COMPLETED;
+		for (int count = 0; count < ITEMS_PER_BASKET; count++) {
+			client.send("purchaseProducts", StoreClient.fields("memberId",
+					memberId, "productId", NETWORK_PRODUCT_ID, "itemQuantity",
+					"1"));
+		}
+		client.flush();
+		int sold = 0;
+		for (int count = 0; count < ITEMS_PER_BASKET; count++) {
+			reply = client.receive();
+			if (reply.getResultCode() == Result.OPERATION_COMPLETED) {
+				sold++;
+			}
+		}
+		reply = client.call("checkTransaction", "memberId", memberId);
+		assert reply.getResultCode() == Result.OPERATION_COMPLETED;
+		reply = client.call("getChange", "memberId", memberId,
+				"transactionChange", "100");
+		assert reply.getResultCode() == Result.TRANSACTION_COMPLETE;
+		return sold;
+	}
+
+	/**
+	 * Tests point-of-sale terminals checking out over the binary protocol at
+	 * the same time. Each terminal sends its whole checkout, from creating
+	 * the transaction to paying, in a single flush before reading any reply.
+	 */
+	public void testBinaryLanes() {
+		Request product = Request.builder().productName("binary product")
+				.productId(BINARY_PRODUCT_ID)
+				.productStock(String.valueOf(INITIAL_STOCK))
+				.productReorderLevel("0").productPrice("2.00").build();
+		Result result = Store.instance().addProduct(product);
+		assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		try (CheckoutServer server = new CheckoutServer(0)) {
+			server.start();
+			int port = server.getPort();
+			AtomicInteger sold = new AtomicInteger();
+			Thread[] lanes = new Thread[NETWORK_LANES];
+			for (int lane = 0; lane < NETWORK_LANES; lane++) {
+				lanes[lane] = new Thread(() -> {
+					try (CheckoutClient client = new CheckoutClient(
+							"localhost", port)) {
+						sold.addAndGet(checkOut(client));
+					} catch (IOException ioe) {
+						throw new UncheckedIOException(ioe);
+					}
+				});
+			}
+			long start = System.nanoTime();
+			for (Thread lane : lanes) {
+				lane.start();
+			}
+			join(lanes);
+			long elapsed = System.nanoTime() - start;
+			int stock = stockOf(Store.instance().searchCatalog(product));
+			assert sold.get() == NETWORK_LANES * ITEMS_PER_BASKET;
+			assert stock == INITIAL_STOCK - sold.get();
+			System.out.println(NETWORK_LANES + " binary lanes sold "
+					+ sold.get() + " items in " + elapsed / 1000000 + " ms");
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * One binary lane: joins as a member, then pipelines the transaction, the
+	 * basket, the check and the payment.
+	 *
+	 * @param client the connection of the lane
+	 * @return the number of items sold
+	 */
+	private int checkOut(CheckoutClient client) throws IOException {
+		Request request = Request.builder().memberName("lane")
+				.memberAddress("lane").memberPhone("lane").memberFeePaid("y")
+				.build();
+		Result result = Store.instance().addMember(request);
+		int member = Member.parseId(result.getMemberId());
+		client.createTransaction(member);
+		for (int count = 0; count < ITEMS_PER_BASKET; count++) {
+			client.purchaseProducts(member, BINARY_PRODUCT_ID, 1);
+		}
+		client.checkTransaction(member);
+		client.getChange(member, 100);
+		client.flush();
+		CheckoutClient.Reply reply = client.receive();
+		assert reply.getResultCode() == Result.OPERATION_COMPLETED;
+		int sold = 0;
+		for (int count = 0; count < ITEMS_PER_BASKET; count++) {
+			reply = client.receive();
+			if (reply.getResultCode() == Result.OPERATION_COMPLETED) {
+				sold += reply.getItemQuantity();
+			}
+		}
+		reply = client.receive();
+		assert reply.getResultCode() == Result.OPERATION_COMPLETED;
+		assert reply.getTransactionTotal() == sold * 2.00;
+		reply = client.receive();
+		assert reply.getResultCode() == Result.TRANSACTION_COMPLETE;
+		assert reply.getTransactionChange() == 100 - sold * 2.00;
+		return sold;
+	}
+
+	/**
+	 * Reads the stock of the product in a result, where "none" stands for 0.
+	 */
+	private static int stockOf(Result result) {
+		String stock = result.getProductStock();
+		return stock.equals("none") ? 0 : Integer.parseInt(stock);
+	}
+
+	private static void join(Thread... threads) {
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Tests many clients of HttpApi at the same time, more than it has
+	 * threads to serve them. Each adds a member with POST and looks up a
+	 * product with GET. A command that changes the store must be refused with GET,
+	 * and a malformed field must be reported as such.
+	 */
+	public void testHttpLanes() {
+		try (HttpApi api = new HttpApi(0)) {
+			api.start();
+			String base = "http://localhost:" + api.getPort() + "/api/";
+			String add = base + "addMember?memberName=http&memberAddress=web"
+					+ "&memberPhone=555&memberFeePaid=y";
+			assert status("GET", add) == 405;
+			assert status("GET", base + "getProducts?limit=many") == 400;
+			AtomicInteger completed = new AtomicInteger();
+			Thread[] lanes = new Thread[HTTP_LANES];
+			for (int lane = 0; lane < HTTP_LANES; lane++) {
+				lanes[lane] = new Thread(() -> {
+					if (status("POST", add) == 200 && status("GET", base
+							+ "searchCatalog?productId=" + NETWORK_PRODUCT_ID)
+							== 200) {
+						completed.incrementAndGet();
+					}
+				});
+				lanes[lane].start();
+			}
+			for (Thread lane : lanes) {
+				lane.join();
+			}
+			assert completed.get() == HTTP_LANES;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Sends a request to HttpApi and returns the status of the reply.
+	 */
+	private static int status(String method, String address) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(address)
+					.openConnection();
+			connection.setRequestMethod(method);
+			if (method.equals("POST")) {
+				connection.setDoOutput(true);
+				connection.getOutputStream().close();
+			}
+			int status = connection.getResponseCode();
+			connection.disconnect();
+			return status;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * Tests all applicable methods
+	 */
+	public void testAll() {
+		testConcurrentCheckout();
+		testConcurrentIds();
+		testBulkShipment();
+		testSnapshotListing();
+		testReportDuringCheckout();
+		testHistoryDuringCheckout();
+		testNetworkLanes();
+		testBinaryLanes();
+		testHttpLanes();
+	}
+
+	/**
+	 * Runs the tests on a new store.
+	 * 
+	 * @param args not used
+	 */
+	public static void main(String[] args) {
+		new ConcurrencyTester().testAll();
+	}
+}
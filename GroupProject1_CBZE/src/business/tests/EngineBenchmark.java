@@ -0,0 +1,134 @@
+package business.tests;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.IOException;
+
+import business.facade.Request;
+import business.facade.Result;
+import business.facade.Store;
+
+/**
+ * The EngineBenchmark class compares the engines that apply the mutating
+ * operations of Store. Several lanes check out a few shared products while
+ * changing their prices now and then, and the rate of operations is printed.
+ * As the engine is chosen when the store is created, each engine runs in a
+ * JVM of its own, started with the system property store.engine. The number
+ * of lanes and the operations per lane can be given as arguments.
+ *
+ */
+public class EngineBenchmark {
+	private static final String[] ENGINES = { "locking", "single-writer" };
+	private static final int PRODUCTS = 16;
+	private static final int PRICE_CHANGE_INTERVAL = 16;
+	private final int lanes;
+	private final int operations;
+
+	/**
+	 * Sets up a benchmark.
+	 *
+	 * @param lanes      the number of lanes
+	 * @param operations the number of operations per lane
+	 */
+	public EngineBenchmark(int lanes, int operations) {
+		this.lanes = lanes;
+		this.operations = operations;
+	}
+
+	/**
+	 * Runs the lanes against the store of this JVM and prints the rate.
+	 *
+	 * @return operations per second
+	 */
+	public double run() {
+		for (int count = 0; count < PRODUCTS; count++) {
+			Request request = Request.builder().productName("engine" + count)
+					.productId("E" + count)
+					.productStock(String.valueOf(Integer.MAX_VALUE / 2))
+					.productReorderLevel("0").productPrice("1.00").build();
+			Store.instance().addProduct(request);
+		}
+		Thread[] threads = new Thread[lanes];
+		for (int lane = 0; lane < lanes; lane++) {
+			int first = lane;
+			threads[lane] = new Thread(() -> checkOut(first));
+		}
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		double rate = (double) lanes * operations / elapsed;
+		System.out.printf("%-14s %d lanes, %d operations in %.2f s,"
+				+ " %,.0f operations/s%n",
+				System.getProperty("store.engine", "locking") + ":", lanes,
+				lanes * operations, elapsed, rate);
+		return rate;
+	}
+
+	/**
+	 * One lane: buys single items of the products in turn, and changes a
+	 * price every few operations.
+	 */
+	private void checkOut(int lane) {
+		Request member = Request.builder().memberName("lane" + lane)
+				.memberAddress("lane").memberPhone("lane").memberFeePaid("y")
+				.build();
+		int number = Integer.parseInt(Store.instance().addMember(member)
+				.getMemberId().substring(1));
+		Store.instance().createTransaction(number);
+		for (int count = 0; count < operations; count++) {
+			String productId = "E" + (lane + count) % PRODUCTS;
+			Result result;
+			if (count % PRICE_CHANGE_INTERVAL == 0) {
+				Request request = Request.builder().productId(productId)
+						.productPrice(count % 2 == 0 ? "1.00" : "1.25")
+						.build();
+				result = Store.instance().changePrice(request);
+			} else {
+				result = Store.instance().purchaseProducts(number, productId,
+						1);
+			}
+			assert result.getResultCode() == Result.OPERATION_COMPLETED;
+		}
+		Store.instance().getChange(number, Double.MAX_VALUE);
+	}
+
+	/**
+	 * Runs the benchmark once per engine, each in a JVM of its own. With
+	 * "run" as the first argument, runs it in this JVM with the engine it was
+	 * started with.
+	 *
+	 * @param args optionally "run", then the number of lanes and the
+	 *             operations per lane, 8 and 100000 by default
+	 */
+	public static void main(String[] args)
+			throws IOException, InterruptedException {
+		boolean run = args.length > 0 && args[0].equals("run");
+		int first = run ? 1 : 0;
+		int lanes = args.length > first ? Integer.parseInt(args[first]) : 8;
+		int operations = args.length > first + 1
+				? Integer.parseInt(args[first + 1])
+				: 100000;
+		if (run) {
+			new EngineBenchmark(lanes, operations).run();
+			return;
+		}
+		String java = System.getProperty("java.home") + "/bin/java";
+		for (String engine : ENGINES) {
+			new ProcessBuilder(java, "-Dstore.engine=" + engine, "-cp",
+					System.getProperty("java.class.path"),
+					EngineBenchmark.class.getName(), "run",
+					String.valueOf(lanes), String.valueOf(operations))
+							.inheritIO().start().waitFor();
+		}
+	}
+}
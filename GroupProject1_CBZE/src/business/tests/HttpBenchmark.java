@@ -0,0 +1,121 @@
+package business.tests;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import business.facade.Request;
+import business.facade.Result;
+import business.facade.Store;
+import server.HttpApi;
+
+/**
+ * The HttpBenchmark class measures the requests per second that HttpApi
+ * serves for searchCatalog while several clients query it in parallel. Each
+ * client keeps its connection alive and looks up products in turn. The number
+ * of clients and the duration in seconds can be given as arguments.
+ *
+ */
+public class HttpBenchmark {
+	private static final int PRODUCTS = 1000;
+	private final int clients;
+	private final int seconds;
+
+	/**
+	 * Sets up a benchmark.
+	 *
+	 * @param clients the number of parallel clients
+	 * @param seconds how long the clients run
+	 */
+	public HttpBenchmark(int clients, int seconds) {
+		this.clients = clients;
+		this.seconds = seconds;
+	}
+
+	/**
+	 * Adds the products, runs the clients against a fresh API and prints the
+	 * rate.
+	 *
+	 * @return requests per second
+	 */
+	public double run() throws IOException {
+		for (int count = 1; count <= PRODUCTS; count++) {
+			Request request = Request.builder().productName("bench" + count)
+					.productId("B" + count).productStock("100")
+					.productReorderLevel("0").productPrice("1.00").build();
+			Store.instance().addProduct(request);
+		}
+		try (HttpApi api = new HttpApi(0)) {
+			api.start();
+			String base = "http://localhost:" + api.getPort()
+					+ "/api/searchCatalog?productId=B";
+			AtomicLong requests = new AtomicLong();
+			long deadline = System.nanoTime() + seconds * 1000000000L;
+			Thread[] threads = new Thread[clients];
+			for (int client = 0; client < clients; client++) {
+				int first = client;
+				threads[client] = new Thread(() -> {
+					for (int count = first; System.nanoTime() < deadline;
+							count++) {
+						String body = get(base + (1 + count % PRODUCTS));
+						assert body.contains("\"resultCode\":\""
+								+ Result.OPERATION_COMPLETED + "\"");
+						requests.incrementAndGet();
+					}
+				});
+			}
+			long start = System.nanoTime();
+			for (Thread thread : threads) {
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				try {
+					thread.join();
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			double elapsed = (System.nanoTime() - start) / 1e9;
+			double rate = requests.get() / elapsed;
+			System.out.printf("searchCatalog over HTTP: %d clients, %d requests"
+					+ " in %.1f s, %.0f requests/s%n", clients,
+					requests.get(), elapsed, rate);
+			return rate;
+		}
+	}
+
+	/**
+	 * Fetches a URL and returns the body. The body is read completely, so that
+	 * the connection can be reused for the next request.
+	 */
+	private static String get(String address) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(address)
+					.openConnection();
+			try (InputStream input = connection.getInputStream()) {
+				return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+			}
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args the number of clients and the duration in seconds, 8 and 5
+	 *             by default
+	 */
+	public static void main(String[] args) throws IOException {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		new HttpBenchmark(clients, seconds).run();
+	}
+}
@@ -0,0 +1,517 @@
+package business.tests;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import business.entities.Transaction;
+import business.facade.Request;
+import business.facade.Result;
+import business.facade.Store;
+
+/**
+ * The JournalTester class checks that the changes to the Store survive a
+ * restart without a save. After a series of operations, the store is
+ * retrieved again, which reads the last snapshot and replays the journal, and
+ * must then list the same products, members, orders and transactions. It
+ * writes StoreData and the StoreJournal segments to the working directory, so
+ * it refuses to run where StoreData exists. Like AutomatedTester it relies on
+ * asserts, so it should be run with assertions enabled (-ea).
+ *
+ */
+public class JournalTester {
+	private static final Path SNAPSHOT = Paths.get("StoreData");
+	private static final int LANES = 4;
+	private static final int PURCHASES = 2000;
+	private static final long TIMEOUT_MILLIS = 30000;
+	private static final int RETRIEVES = 5;
+	private static final int HEADER_LENGTH = 16;
+	private String memberId;
+
+	/**
+	 * Tests replaying a journal onto a store that was never saved. The
+	 * operations cover every kind of change the store makes.
+	 */
+	public void testReplayWithoutSnapshot() {
+		Request request = Request.builder().productName("journal product")
+				.productId("J1").productStock("10").productReorderLevel("2")
+				.productPrice("2.00").build();
+		assert Store.instance().addProduct(request)
+				.getResultCode() == Result.OPERATION_COMPLETED;
+		request = Request.builder().productName("journal basket")
+				.productId("J2").productStock("50").productReorderLevel("1")
+				.productPrice("0.50").build();
+		assert Store.instance().addProduct(request)
+				.getResultCode() == Result.OPERATION_COMPLETED;
+		memberId = addMember("journal member");
+		String leaving = addMember("journal leaver");
+		request = Request.builder().memberId(memberId).build();
+		Store.instance().createTransaction(request);
+		request = Request.builder().memberId(memberId).productId("J1")
+				.itemQuantity("8").build();
+		Result result = Store.instance().purchaseProducts(request);
+		assert result.getResultCode() == Result.REORDER_QUEUED
+				|| result.getResultCode() == Result.ORDER_COALESCED;
+		request = Request.builder().memberId(memberId).basketLine("J2", 3)
+				.basketLine("J1", 1).build();
+		Store.instance().purchaseBasket(request);
+		request = Request.builder().productId("J2").productPrice("0.75")
+				.build();
+		Store.instance().changePrice(request);
+		request = Request.builder().memberId(memberId)
+				.transactionChange("100").build();
+		assert Store.instance().getChange(request)
+				.getResultCode() == Result.TRANSACTION_COMPLETE;
+		request = Request.builder().memberId(memberId).build();
+		Store.instance().createTransaction(request);
+		assert Store.instance().checkTransaction(request)
+				.getResultCode() == Result.TRANSACTION_EMPTY;
+		request = Request.builder().memberId(leaving).build();
+		assert Store.instance().removeMember(request)
+				.getResultCode() == Result.OPERATION_COMPLETED;
+		Store.instance().flushReorders();
+		request = Request.builder().productId("J2").build();
+		Iterator<Result> orders = Store.instance().getProductOrders(request);
+		request = Request.builder().orderId(orders.next().getOrderId())
+				.build();
+		assert Store.instance().processShipments(request)
+				.getResultCode() == Result.OPERATION_COMPLETED;
+		request = Request.builder().productName("journal leftover")
+				.productId("J0").productStock("5").productReorderLevel("0")
+				.productPrice("1.00").build();
+		assert Store.instance().addProduct(request)
+				.getResultCode() == Result.OPERATION_COMPLETED;
+		request = Request.builder().productId("J0").build();
+		assert Store.instance().removeProduct(request)
+				.getResultCode() == Result.OPERATION_FAILED;
+		orders = Store.instance().getProductOrders(request);
+		request = Request.builder().orderId(orders.next().getOrderId())
+				.build();
+		assert Store.instance().processShipments(request)
+				.getResultCode() == Result.OPERATION_COMPLETED;
+		request = Request.builder().productId("J0").build();
+		assert Store.instance().removeProduct(request)
+				.getResultCode() == Result.OPERATION_COMPLETED;
+		assertRestarts();
+		assert Store.instance().removeProduct(request)
+				.getResultCode() == Result.NO_SUCH_PRODUCT;
+	}
+
+	/**
+	 * Tests replaying the journal written after a save onto the snapshot. The
+	 * save starts a new journal segment and deletes the older ones.
+	 */
+	public void testReplayAfterSave() {
+		assert Store.save();
+		assert segments().size() == 1;
+		long length = journalSize();
+		Request request = Request.builder().memberId(memberId).build();
+		Store.instance().createTransaction(request);
+		request = Request.builder().memberId(memberId).productId("J2")
+				.itemQuantity("4").build();
+		Store.instance().purchaseProducts(request);
+		request = Request.builder().productId("J1").build();
+		Iterator<Result> orders = Store.instance().getProductOrders(request);
+		request = Request.builder().shipmentOrder(orders.next().getOrderId())
+				.shipmentOrder("O999999").build();
+		assert Store.instance().receiveShipment(request)
+				.getResultCode() == Result.NO_ORDER_FOUND;
+		addMember("journal newcomer");
+		assertRestarts();
+		assert journalSize() > length;
+		assert Store.instance().getRecordsReplayed() > 0;
+		assert Store.save();
+		assert Store.instance().getCheckpoints() == 1;
+		assert segments().size() == 1;
+		assert journalSize() == length;
+		assertRestarts();
+	}
+
+	/**
+	 * Tests that a record torn by a crash is ignored, and that the journal
+	 * goes on after the last intact record.
+	 */
+	public void testTornRecord() {
+		try {
+			List<Path> segments = segments();
+			Files.write(segments.get(segments.size() - 1),
+					new byte[] { 0, 0, 0, 40, 10, 0, 0 },
+					StandardOpenOption.APPEND);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		assertRestarts();
+		Request request = Request.builder().productId("J2").productPrice("1.25")
+				.build();
+		Store.instance().changePrice(request);
+		assertRestarts();
+		request = Request.builder().productId("J2").build();
+		assert Store.instance().searchCatalog(request).getProductPrice()
+				.equals("1.25");
+	}
+
+	/**
+	 * Tests that a record damaged in the middle of the journal is refused
+	 * rather than taken for a torn tail, which would drop the intact records
+	 * after it.
+	 */
+	public void testDamagedRecord() {
+		addMember("journal damage");
+		addMember("journal damage");
+		assertRestarts();
+		String before = describe();
+		Path newest = segments().get(segments().size() - 1);
+		try {
+			byte[] bytes = Files.readAllBytes(newest);
+			int offset = HEADER_LENGTH + Integer.BYTES + 1;
+			bytes[offset] ^= 1;
+			Files.write(newest, bytes);
+			assert retrieveFails();
+			assert refusesToStart();
+			assert segments().contains(newest);
+			bytes[offset] ^= 1;
+			Files.write(newest, bytes);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		retrieve();
+		assert before.equals(describe());
+	}
+
+	/**
+	 * Tests checkpoints taken in the background while members check out.
+	 * With the size limit at one byte, every poll of the checkpointer that
+	 * finds records writes a checkpoint.
+	 */
+	public void testCheckpoints() {
+		Request request = Request.builder().productName("journal checkpoint")
+				.productId("J3").productStock("1000000")
+				.productReorderLevel("0").productPrice("1.00").build();
+		assert Store.instance().addProduct(request)
+				.getResultCode() == Result.OPERATION_COMPLETED;
+		System.setProperty("store.checkpoint.bytes", "1");
+		try {
+			retrieve();
+			Thread[] lanes = new Thread[LANES];
+			for (int lane = 0; lane < LANES; lane++) {
+				lanes[lane] = new Thread(JournalTester::checkOut);
+				lanes[lane].start();
+			}
+			for (Thread lane : lanes) {
+				lane.join();
+			}
+			long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+			while (Store.instance().getCheckpoints() < 2
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			System.clearProperty("store.checkpoint.bytes");
+		}
+		assert Store.instance().getCheckpoints() >= 2;
+		assert Store.instance().getCheckpointMillis() > 0;
+		assertRestarts();
+		assert segments().size() == 1;
+		request = Request.builder().productId("J3").build();
+		assert Store.instance().searchCatalog(request).getProductStock()
+				.equals(String.valueOf(1000000 - LANES * PURCHASES));
+	}
+
+	/**
+	 * Tests that retrieving the store stops the threads of the store it
+	 * replaces, so that repeated retrieves leave no reorder pipelines behind.
+	 */
+	public void testRetrieveStopsPrevious() {
+		int before = countThreads("reorder-pipeline");
+		for (int count = 0; count < RETRIEVES; count++) {
+			retrieve();
+		}
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		try {
+			while (countThreads("reorder-pipeline") > before
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		assert countThreads("reorder-pipeline") == before;
+	}
+
+	/**
+	 * Tests that the store replaced by a retrieve fails the operations that
+	 * lanes still hand to it, rather than leave them waiting. This matters
+	 * with the single-writer engine, whose writer stops with the store; with
+	 * the locking engine the test does nothing.
+	 */
+	public void testOperationsAfterStop() {
+		if (!"single-writer".equals(System.getProperty("store.engine"))) {
+			return;
+		}
+		Store previous = Store.instance();
+		AtomicInteger refused = new AtomicInteger();
+		Thread[] lanes = new Thread[LANES];
+		for (int lane = 0; lane < LANES; lane++) {
+			lanes[lane] = new Thread(() -> {
+				Request request = Request.builder().memberName("journal late")
+						.memberAddress("journal street")
+						.memberPhone("555-0100").memberFeePaid("y").build();
+				while (true) {
+					try {
+						previous.addMember(request);
+					} catch (IllegalStateException ise) {
+						refused.incrementAndGet();
+						return;
+					} catch (RuntimeException re) {
+						// the journal closed under the operation
+					}
+				}
+			});
+			lanes[lane].setDaemon(true);
+			lanes[lane].start();
+		}
+		try {
+			Thread.sleep(50);
+			retrieve();
+			for (Thread lane : lanes) {
+				lane.join(TIMEOUT_MILLIS);
+				assert !lane.isAlive();
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		assert refused.get() == LANES;
+	}
+
+	/**
+	 * Tests that resetting the store discards the changes that were not
+	 * saved and starts over with an empty store, leaving StoreData as it is.
+	 */
+	public void testReset() {
+		Store.instance().flushReorders();
+		assert Store.save();
+		String saved = describe();
+		addMember("journal reset");
+		try {
+			assert Store.reset() != null;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		assert segments().size() == 1;
+		assert !Store.instance().getMembers().hasNext();
+		retrieve();
+		assert saved.equals(describe());
+	}
+
+	/**
+	 * One lane of testCheckpoints: a new member buys single items of J3.
+	 */
+	private static void checkOut() {
+		String id = addMember("journal lane");
+		int number = Integer.parseInt(id.substring(1));
+		Store.instance().createTransaction(number);
+		for (int count = 0; count < PURCHASES; count++) {
+			assert Store.instance().purchaseProducts(number, "J3", 1)
+					.getResultCode() == Result.OPERATION_COMPLETED;
+		}
+		Store.instance().getChange(number, Double.MAX_VALUE);
+	}
+
+	/**
+	 * Retrieves the store and checks that it lists the same contents.
+	 */
+	private void assertRestarts() {
+		String before = describe();
+		Store.instance().flushReorders();
+		retrieve();
+		String after = describe();
+		assert before.equals(after) : before + "\n<>\n" + after;
+	}
+
+	/**
+	 * Retrieves the store, which is expected to succeed.
+	 */
+	static void retrieve() {
+		try {
+			Store.retrieve();
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * Tells whether retrieving the store fails, printing why.
+	 */
+	static boolean retrieveFails() {
+		try {
+			Store.retrieve();
+			return false;
+		} catch (IOException ioe) {
+			System.out.println("Retrieve refused as expected: " + ioe);
+			return true;
+		}
+	}
+
+	/**
+	 * Tells whether a new store refuses to start over the journal.
+	 */
+	private static boolean refusesToStart() {
+		try {
+			Store.instance();
+			return false;
+		} catch (IllegalStateException ise) {
+			return true;
+		}
+	}
+
+	private static String addMember(String name) {
+		Request request = Request.builder().memberName(name)
+				.memberAddress("journal street").memberPhone("555-0100")
+				.memberFeePaid("y").build();
+		return Store.instance().addMember(request).getMemberId();
+	}
+
+	/**
+	 * Lists the contents of the store, sorted, one line per product, member,
+	 * order and transaction.
+	 */
+	static String describe() {
+		Store store = Store.instance();
+		List<String> lines = new ArrayList<String>();
+		for (Iterator<Result> iterator = store.getProducts(); iterator
+				.hasNext();) {
+			Result product = iterator.next();
+			lines.add("P " + product.getProductId() + " "
+					+ product.getProductName() + " " + product.getProductStock()
+					+ " " + product.getProductPrice() + " "
+					+ product.getProductReorderLevel());
+		}
+		Calendar start = new GregorianCalendar(2000, Calendar.JANUARY, 1);
+		Calendar end = new GregorianCalendar(2100, Calendar.JANUARY, 1);
+		for (Iterator<Result> iterator = store.getMembers(); iterator
+				.hasNext();) {
+			Result member = iterator.next();
+			lines.add("M " + member.getMemberId() + " "
+					+ member.getMemberName() + " " + member.getMemberAddress()
+					+ " " + member.getMemberPhone() + " "
+					+ member.getMemberFeePaid() + " "
+					+ member.getMemberDateJoined());
+			Request request = Request.builder().memberId(member.getMemberId())
+					.startDate(start).endDate(end).build();
+			for (Iterator<Transaction> transactions = store
+					.getTransactions(request); transactions.hasNext();) {
+				Transaction transaction = transactions.next();
+				lines.add("T " + member.getMemberId() + " "
+						+ transaction.getTime() + " " + transaction.getItems()
+						+ " " + transaction.getTotal() + " "
+						+ transaction.getPayment());
+			}
+		}
+		for (Iterator<Result> iterator = store.getOrders(); iterator
+				.hasNext();) {
+			Result order = iterator.next();
+			lines.add("O " + order.getOrderId() + " "
+					+ order.getOrderProductId() + " "
+					+ order.getOrderQuantity() + " " + order.getOrderDate());
+		}
+		Request request = Request.builder().startDate(start).endDate(end)
+				.build();
+		Result report = store.getSalesReport(request);
+		// to the cent, as the total depends on the order it was summed in
+		lines.add(String.format("S %.2f %s",
+				Double.parseDouble(report.getTransactionTotal()),
+				report.getItemQuantity()));
+		lines.sort(null);
+		return String.join("\n", lines);
+	}
+
+	/**
+	 * Lists the journal segments in the working directory, oldest first.
+	 */
+	private static List<Path> segments() {
+		List<Path> segments = new ArrayList<Path>();
+		try (DirectoryStream<Path> stream = Files
+				.newDirectoryStream(Paths.get("."), "StoreJournal.*")) {
+			for (Path segment : stream) {
+				segments.add(segment);
+			}
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		segments.sort((first, second) -> Long.compare(base(first),
+				base(second)));
+		return segments;
+	}
+
+	private static long base(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(name.indexOf('.') + 1));
+	}
+
+	private static int countThreads(String name) {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals(name) && thread.isAlive()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static long journalSize() {
+		long size = 0;
+		try {
+			for (Path segment : segments()) {
+				size += Files.size(segment);
+			}
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		return size;
+	}
+
+	/**
+	 * Runs the tests in order.
+	 */
+	public void testAll() {
+		testReplayWithoutSnapshot();
+		testReplayAfterSave();
+		testTornRecord();
+		testDamagedRecord();
+		testCheckpoints();
+		testRetrieveStopsPrevious();
+		testOperationsAfterStop();
+		testReset();
+		System.out.println("Journal tests passed");
+	}
+
+	/**
+	 * Runs the tests with a journal, in a directory without StoreData.
+	 *
+	 * @param args optionally the journal policy, "always" by default
+	 */
+	public static void main(String[] args) {
+		if (Files.exists(SNAPSHOT)) {
+			System.out.println("Run JournalTester where there is no StoreData");
+			return;
+		}
+		System.setProperty("store.journal",
+				args.length > 0 ? args[0] : "always");
+		new JournalTester().testAll();
+	}
+}
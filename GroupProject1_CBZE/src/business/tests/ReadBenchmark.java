@@ -0,0 +1,156 @@
+package business.tests;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import business.facade.Request;
+import business.facade.Result;
+import business.facade.Store;
+
+/**
+ * The ReadBenchmark class measures how lookups by id scale with the number of
+ * reader threads. Readers alternate between searchCatalog and
+ * searchMembership while a writer keeps changing prices and checking out, and
+ * the rate is printed for 1, 2, 4, ... readers up to the given maximum. The
+ * maximum number of readers and the duration of each step in seconds can be
+ * given as arguments.
+ *
+ */
+public class ReadBenchmark {
+	private static final int PRODUCTS = 1000;
+	private static final int MEMBERS = 1000;
+	private final int maxReaders;
+	private final int seconds;
+	private final String[] productIds = new String[PRODUCTS];
+	private final String[] memberIds = new String[MEMBERS];
+
+	/**
+	 * Sets up a benchmark.
+	 *
+	 * @param maxReaders the largest number of readers
+	 * @param seconds    how long each step runs
+	 */
+	public ReadBenchmark(int maxReaders, int seconds) {
+		this.maxReaders = maxReaders;
+		this.seconds = seconds;
+	}
+
+	/**
+	 * Adds the products and members, then runs the steps.
+	 */
+	public void run() {
+		for (int count = 0; count < PRODUCTS; count++) {
+			productIds[count] = "R" + count;
+			Request request = Request.builder().productName("read" + count)
+					.productId(productIds[count]).productStock("1000000")
+					.productReorderLevel("0").productPrice("1.00").build();
+			Store.instance().addProduct(request);
+		}
+		Request member = Request.builder().memberName("reader")
+				.memberAddress("reader").memberPhone("reader")
+				.memberFeePaid("y").build();
+		for (int count = 0; count < MEMBERS; count++) {
+			memberIds[count] = Store.instance().addMember(member)
+					.getMemberId();
+		}
+		double single = 0;
+		for (int readers = 1; readers <= maxReaders; readers *= 2) {
+			double rate = step(readers);
+			if (readers == 1) {
+				single = rate;
+			}
+			System.out.printf("%3d readers: %,12.0f lookups/s, %5.2fx%n",
+					readers, rate, rate / single);
+		}
+	}
+
+	/**
+	 * Runs the readers and the writer for one step.
+	 *
+	 * @param readers the number of readers
+	 * @return lookups per second over all readers
+	 */
+	private double step(int readers) {
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicLong lookups = new AtomicLong();
+		Thread writer = new Thread(() -> write(running));
+		Thread[] threads = new Thread[readers];
+		for (int reader = 0; reader < readers; reader++) {
+			int first = reader;
+			threads[reader] = new Thread(() -> {
+				long count = 0;
+				for (int index = first; running.get(); index++) {
+					Request request = Request.builder()
+							.productId(productIds[index % PRODUCTS])
+							.memberId(memberIds[index % MEMBERS]).build();
+					Result result = index % 2 == 0
+							? Store.instance().searchCatalog(request)
+							: Store.instance().searchMembership(request);
+					assert result.getResultCode() == Result.OPERATION_COMPLETED;
+					count++;
+				}
+				lookups.addAndGet(count);
+			});
+		}
+		writer.start();
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		try {
+			Thread.sleep(seconds * 1000L);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		running.set(false);
+		join(threads);
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		join(writer);
+		return lookups.get() / elapsed;
+	}
+
+	/**
+	 * Changes prices and buys single items until the step ends.
+	 */
+	private void write(AtomicBoolean running) {
+		Request member = Request.builder().memberId(memberIds[0]).build();
+		Store.instance().createTransaction(member);
+		for (int index = 0; running.get(); index++) {
+			String productId = productIds[index % PRODUCTS];
+			Request request = Request.builder().productId(productId)
+					.productPrice(index % 2 == 0 ? "1.00" : "1.50").build();
+			Store.instance().changePrice(request);
+			request = Request.builder().memberId(memberIds[0])
+					.productId(productId).itemQuantity("1").build();
+			Store.instance().purchaseProducts(request);
+		}
+		member = Request.builder().memberId(memberIds[0])
+				.transactionChange("1000000000").build();
+		Store.instance().getChange(member);
+	}
+
+	private static void join(Thread... threads) {
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args the largest number of readers and the seconds per step, 8
+	 *             and 3 by default
+	 */
+	public static void main(String[] args) {
+		int readers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		new ReadBenchmark(readers, seconds).run();
+	}
+}
@@ -0,0 +1,219 @@
+package business.tests;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import business.entities.Member;
+import business.entities.Order;
+import business.facade.Request;
+import business.facade.SnapshotConverter;
+import business.facade.Store;
+
+/**
+ * The SnapshotTester class checks the binary snapshot format. A store with
+ * products, members, transactions and orders is saved with Java
+ * serialization, as earlier versions did, converted, and retrieved again, and
+ * must then list the same contents; so must the store saved and retrieved in
+ * the new format. The sizes of both formats and the times to save and
+ * retrieve them are printed. It writes StoreData to the working directory, so
+ * it refuses to run where StoreData exists. Like AutomatedTester it relies on
+ * asserts, so it should be run with assertions enabled (-ea).
+ *
+ */
+public class SnapshotTester {
+	private static final Path SNAPSHOT = Paths.get("StoreData");
+	private static final Path SERIALIZED = Paths.get("StoreData.serialized");
+	private static final int PRODUCTS = 200;
+	private static final int MEMBERS = 5000;
+	private static final int TRANSACTIONS = 4;
+	private static final int ITEMS = 3;
+	private static final int ROUNDS = 3;
+	private long serializedSize;
+	private long serializedSaveNanos = Long.MAX_VALUE;
+	private long serializedRetrieveNanos = Long.MAX_VALUE;
+
+	/**
+	 * Fills the store. Every member buys a few items in each of a few
+	 * transactions, and one product runs low enough to be reordered.
+	 */
+	public void fill() {
+		for (int count = 0; count < PRODUCTS; count++) {
+			Request request = Request.builder()
+					.productName("snapshot product " + count)
+					.productId("S" + count).productStock("1000000")
+					.productReorderLevel("0")
+					.productPrice(count % 7 == 0 ? "0.333" : "1.25").build();
+			Store.instance().addProduct(request);
+		}
+		Request request = Request.builder().productName("snapshot reorder")
+				.productId("SR").productStock("10").productReorderLevel("5")
+				.productPrice("3.00").build();
+		Store.instance().addProduct(request);
+		for (int count = 0; count < MEMBERS; count++) {
+			request = Request.builder().memberName("snapshot member " + count)
+					.memberAddress(count + " snapshot street")
+					.memberPhone("555-" + count).memberFeePaid("y").build();
+			int number = Integer.parseInt(
+					Store.instance().addMember(request).getMemberId()
+							.substring(1));
+			for (int transaction = 0; transaction < TRANSACTIONS;
+					transaction++) {
+				Store.instance().createTransaction(number);
+				for (int item = 0; item < ITEMS; item++) {
+					int product = (count + transaction * ITEMS + item)
+							% PRODUCTS;
+					Store.instance().purchaseProducts(number, "S" + product,
+							1 + item);
+				}
+				Store.instance().getChange(number, 100);
+			}
+		}
+		Store.instance().createTransaction(1);
+		Store.instance().purchaseProducts(1, "SR", 6);
+		Store.instance().flushReorders();
+		assert Store.instance().getOrders().hasNext();
+	}
+
+	/**
+	 * Tests converting a snapshot saved with Java serialization, and times
+	 * saving and retrieving it.
+	 */
+	public void testConvertSerialized() {
+		String before = JournalTester.describe();
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			saveSerialized();
+			serializedSaveNanos = Math.min(serializedSaveNanos,
+					System.nanoTime() - start);
+		}
+		serializedSize = size(SERIALIZED);
+		for (int round = 0; round < ROUNDS; round++) {
+			copy(SERIALIZED, SNAPSHOT);
+			long start = System.nanoTime();
+			JournalTester.retrieve();
+			serializedRetrieveNanos = Math.min(serializedRetrieveNanos,
+					System.nanoTime() - start);
+		}
+		assert before.equals(JournalTester.describe());
+		try {
+			SnapshotConverter.convert(SERIALIZED, SNAPSHOT);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		assert size(SNAPSHOT) < serializedSize;
+		JournalTester.retrieve();
+		String after = JournalTester.describe();
+		assert before.equals(after) : before + "\n<>\n" + after;
+	}
+
+	/**
+	 * Tests saving and retrieving in the new format, and compares the size
+	 * and the times with those of Java serialization.
+	 */
+	public void testSaveAndRetrieve() {
+		String before = JournalTester.describe();
+		long saveNanos = Long.MAX_VALUE;
+		long retrieveNanos = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			assert Store.save();
+			saveNanos = Math.min(saveNanos, System.nanoTime() - start);
+			start = System.nanoTime();
+			JournalTester.retrieve();
+			retrieveNanos = Math.min(retrieveNanos, System.nanoTime() - start);
+		}
+		String after = JournalTester.describe();
+		assert before.equals(after) : before + "\n<>\n" + after;
+		long size = size(SNAPSHOT);
+		System.out.printf("serialized: %,d bytes, saved in %.1f ms,"
+				+ " retrieved in %.1f ms%n", serializedSize,
+				serializedSaveNanos / 1e6, serializedRetrieveNanos / 1e6);
+		System.out.printf("binary:     %,d bytes, saved in %.1f ms,"
+				+ " retrieved in %.1f ms%n", size, saveNanos / 1e6,
+				retrieveNanos / 1e6);
+		assert size * 5 < serializedSize;
+	}
+
+	/**
+	 * Tests that a damaged snapshot is refused rather than half read.
+	 */
+	public void testDamagedSnapshot() {
+		try {
+			byte[] bytes = Files.readAllBytes(SNAPSHOT);
+			bytes[bytes.length / 2] ^= 1;
+			Files.write(SNAPSHOT, bytes);
+			assert JournalTester.retrieveFails();
+			bytes[bytes.length / 2] ^= 1;
+			Files.write(SNAPSHOT, bytes);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		JournalTester.retrieve();
+	}
+
+	/**
+	 * Saves the store the way earlier versions did, with Java serialization.
+	 */
+	private static void saveSerialized() {
+		try (FileOutputStream file = new FileOutputStream(
+				SERIALIZED.toFile())) {
+			ObjectOutputStream output = new ObjectOutputStream(file);
+			output.writeObject(Store.instance());
+			Member.save(output);
+			Order.save(output);
+			output.flush();
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	private static void copy(Path from, Path to) {
+		try {
+			Files.copy(from, to, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	private static long size(Path path) {
+		try {
+			return Files.size(path);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * Runs the tests in order.
+	 */
+	public void testAll() {
+		fill();
+		testConvertSerialized();
+		testSaveAndRetrieve();
+		testDamagedSnapshot();
+		System.out.println("Snapshot tests passed");
+	}
+
+	/**
+	 * Runs the tests in a directory without StoreData.
+	 *
+	 * @param args not used
+	 */
+	public static void main(String[] args) {
+		if (Files.exists(SNAPSHOT)) {
+			System.out
+					.println("Run SnapshotTester where there is no StoreData");
+			return;
+		}
+		new SnapshotTester().testAll();
+	}
+}
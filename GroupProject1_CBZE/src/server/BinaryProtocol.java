@@ -0,0 +1,127 @@
+package server;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary protocol spoken by CheckoutServer and CheckoutClient. It covers
+ * the checkout operations of a point-of-sale terminal and carries numbers as
+ * numbers, so nothing is formatted or parsed as text on the way.
+ *
+ * Every frame starts with an unsigned 16-bit length, counting the bytes that
+ * follow it, and an 8-bit opcode. All numbers are big-endian; members are
+ * given by their member number, amounts are 64-bit doubles, and strings are
+ * written as an 8-bit length followed by UTF-8 bytes.
+ *
+ * Requests, after the opcode:
+ *
+ * CREATE_TRANSACTION: int member number
+ *
+ * PURCHASE: int member number, int quantity, string product id
+ *
+ * CHECK_TRANSACTION: int member number
+ *
+ * GET_CHANGE: int member number, double payment
+ *
+ * A reply repeats the opcode of its request and adds the result code as a
+ * byte, followed by values that depend on both:
+ *
+ * PURCHASE, completed, order placed, order coalesced or reorder queued: int
+ * item quantity, double item total, double transaction total; with an order
+ * placed or coalesced also int order number, int order quantity. Failed for
+ * lack of stock: int stock.
+ *
+ * CHECK_TRANSACTION, completed: double transaction total
+ *
+ * GET_CHANGE, transaction complete: double change
+ *
+ * Besides the result codes of Result, a reply may carry MALFORMED_REQUEST if
+ * the request could not be parsed, or STORE_FAILED if the store failed to
+ * run it, for instance because its journal could not be written; either way
+ * without values.
+ *
+ * A terminal may send any number of requests before reading the replies,
+ * which come back in the order of the requests.
+ *
+ */
+final class BinaryProtocol {
+	static final byte CREATE_TRANSACTION = 1;
+	static final byte PURCHASE = 2;
+	static final byte CHECK_TRANSACTION = 3;
+	static final byte GET_CHANGE = 4;
+	static final byte MALFORMED_REQUEST = -1;
+	static final byte STORE_FAILED = -2;
+	static final int LENGTH_BYTES = 2;
+	static final int MAX_FRAME = 0xFFFF;
+
+	private BinaryProtocol() {
+	}
+
+	/**
+	 * Writes a string as its length and UTF-8 bytes.
+	 *
+	 * @param value  the string, at most 255 bytes long in UTF-8
+	 * @param buffer the buffer to write to
+	 */
+	static void putString(String value, ByteBuffer buffer) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xFF) {
+			throw new IllegalArgumentException("String too long: " + value);
+		}
+		buffer.put((byte) bytes.length);
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Reads a string written by putString.
+	 *
+	 * @param buffer the buffer to read from
+	 * @return the string
+	 */
+	static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.get() & 0xFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Starts a frame by reserving its length.
+	 *
+	 * @param buffer the buffer to write to
+	 * @return the position of the length, for endFrame
+	 */
+	static int beginFrame(ByteBuffer buffer) {
+		int start = buffer.position();
+		buffer.putShort((short) 0);
+		return start;
+	}
+
+	/**
+	 * Completes a frame by filling in its length.
+	 *
+	 * @param buffer the buffer the frame was written to
+	 * @param start  the position returned by beginFrame
+	 */
+	static void endFrame(ByteBuffer buffer, int start) {
+		int length = buffer.position() - start - LENGTH_BYTES;
+		buffer.putShort(start, (short) length);
+	}
+
+	/**
+	 * Checks whether a complete frame can be read from a buffer.
+	 *
+	 * @param buffer the buffer, ready for reading
+	 * @return the length of the frame after its length field, or -1 if the
+	 *         frame is not complete yet
+	 */
+	static int frameLength(ByteBuffer buffer) {
+		if (buffer.remaining() < LENGTH_BYTES) {
+			return -1;
+		}
+		int length = buffer.getShort(buffer.position()) & 0xFFFF;
+		return buffer.remaining() - LENGTH_BYTES < length ? -1 : length;
+	}
+}
@@ -0,0 +1,242 @@
+package server;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import business.facade.Result;
+
+/**
+ * A point-of-sale terminal talking to CheckoutServer. Requests are queued by
+ * createTransaction(), purchaseProducts(), checkTransaction() and getChange()
+ * and go out on flush(), or whenever the queue is full; receive() returns the
+ * replies in the order of the requests. A whole basket can thus be sent in a
+ * single write. Besides the result codes of Result, a reply may carry
+ * MALFORMED_REQUEST or STORE_FAILED, as described in BinaryProtocol.
+ *
+ */
+public class CheckoutClient implements AutoCloseable {
+	public static final int MALFORMED_REQUEST =
+			BinaryProtocol.MALFORMED_REQUEST;
+	public static final int STORE_FAILED = BinaryProtocol.STORE_FAILED;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private final SocketChannel channel;
+	private final ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+	private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE + 2);
+
+	/**
+	 * Connects to a server.
+	 *
+	 * @param host the host of the server
+	 * @param port the port of the server
+	 * @throws IOException if the connection fails
+	 */
+	public CheckoutClient(String host, int port) throws IOException {
+		channel = SocketChannel.open(new InetSocketAddress(host, port));
+		channel.socket().setTcpNoDelay(true);
+		input.flip();
+	}
+
+	/**
+	 * Queues the creation of a transaction.
+	 *
+	 * @param memberNumber the number of the member
+	 * @throws IOException if the queue had to be flushed and that failed
+	 */
+	public void createTransaction(int memberNumber) throws IOException {
+		int start = begin(BinaryProtocol.CREATE_TRANSACTION);
+		output.putInt(memberNumber);
+		BinaryProtocol.endFrame(output, start);
+	}
+
+	/**
+	 * Queues the purchase of a product.
+	 *
+	 * @param memberNumber the number of the member
+	 * @param productId    the id of the product
+	 * @param quantity     the quantity purchased
+	 * @throws IOException if the queue had to be flushed and that failed
+	 */
+	public void purchaseProducts(int memberNumber, String productId,
+			int quantity) throws IOException {
+		int start = begin(BinaryProtocol.PURCHASE);
+		output.putInt(memberNumber);
+		output.putInt(quantity);
+		BinaryProtocol.putString(productId, output);
+		BinaryProtocol.endFrame(output, start);
+	}
+
+	/**
+	 * Queues the check of the current transaction.
+	 *
+	 * @param memberNumber the number of the member
+	 * @throws IOException if the queue had to be flushed and that failed
+	 */
+	public void checkTransaction(int memberNumber) throws IOException {
+		int start = begin(BinaryProtocol.CHECK_TRANSACTION);
+		output.putInt(memberNumber);
+		BinaryProtocol.endFrame(output, start);
+	}
+
+	/**
+	 * Queues the payment of the current transaction.
+	 *
+	 * @param memberNumber the number of the member
+	 * @param payment      the payment from the customer
+	 * @throws IOException if the queue had to be flushed and that failed
+	 */
+	public void getChange(int memberNumber, double payment)
+			throws IOException {
+		int start = begin(BinaryProtocol.GET_CHANGE);
+		output.putInt(memberNumber);
+		output.putDouble(payment);
+		BinaryProtocol.endFrame(output, start);
+	}
+
+	/**
+	 * Sends the queued requests.
+	 *
+	 * @throws IOException if the connection fails
+	 */
+	public void flush() throws IOException {
+		output.flip();
+		while (output.hasRemaining()) {
+			channel.write(output);
+		}
+		output.clear();
+	}
+
+	/**
+	 * Reads the reply to the oldest request that has not been answered yet.
+	 *
+	 * @return the reply
+	 * @throws IOException if the connection fails
+	 */
+	public Reply receive() throws IOException {
+		int length;
+		while ((length = BinaryProtocol.frameLength(input)) < 0) {
+			input.compact();
+			int read = channel.read(input);
+			input.flip();
+			if (read < 0) {
+				throw new EOFException("Connection closed by the server");
+			}
+		}
+		input.position(input.position() + BinaryProtocol.LENGTH_BYTES);
+		ByteBuffer frame = input.slice();
+		frame.limit(length);
+		input.position(input.position() + length);
+		return new Reply(frame);
+	}
+
+	/**
+	 * Closes the connection.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Starts a request, flushing the queue first if a request of the largest
+	 * size might not fit.
+	 */
+	private int begin(byte opcode) throws IOException {
+		if (output.remaining() < 0x200) {
+			flush();
+		}
+		int start = BinaryProtocol.beginFrame(output);
+		output.put(opcode);
+		return start;
+	}
+
+	/**
+	 * The reply to a checkout request. Values that the reply does not carry
+	 * are 0.
+	 *
+	 */
+	public static class Reply {
+		private final int resultCode;
+		private int itemQuantity;
+		private double itemTotal;
+		private double transactionTotal;
+		private double transactionChange;
+		private int orderNumber;
+		private int orderQuantity;
+		private int productStock;
+
+		private Reply(ByteBuffer frame) {
+			byte opcode = frame.get();
+			resultCode = frame.get();
+			switch (opcode) {
+			case BinaryProtocol.PURCHASE:
+				if (resultCode == Result.OPERATION_COMPLETED
+						|| resultCode == Result.ORDER_PLACED
+						|| resultCode == Result.ORDER_COALESCED
+						|| resultCode == Result.REORDER_QUEUED) {
+					itemQuantity = frame.getInt();
+					itemTotal = frame.getDouble();
+					transactionTotal = frame.getDouble();
+					if (resultCode == Result.ORDER_PLACED
+							|| resultCode == Result.ORDER_COALESCED) {
+						orderNumber = frame.getInt();
+						orderQuantity = frame.getInt();
+					}
+				} else if (resultCode == Result.OPERATION_FAILED
+						&& frame.remaining() >= Integer.BYTES) {
+					productStock = frame.getInt();
+				}
+				break;
+			case BinaryProtocol.CHECK_TRANSACTION:
+				if (resultCode == Result.OPERATION_COMPLETED) {
+					transactionTotal = frame.getDouble();
+				}
+				break;
+			case BinaryProtocol.GET_CHANGE:
+				if (resultCode == Result.TRANSACTION_COMPLETE) {
+					transactionChange = frame.getDouble();
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		public int getResultCode() {
+			return resultCode;
+		}
+
+		public int getItemQuantity() {
+			return itemQuantity;
+		}
+
+		public double getItemTotal() {
+			return itemTotal;
+		}
+
+		public double getTransactionTotal() {
+			return transactionTotal;
+		}
+
+		public double getTransactionChange() {
+			return transactionChange;
+		}
+
+		public int getOrderNumber() {
+			return orderNumber;
+		}
+
+		public int getOrderQuantity() {
+			return orderQuantity;
+		}
+
+		public int getProductStock() {
+			return productStock;
+		}
+	}
+}
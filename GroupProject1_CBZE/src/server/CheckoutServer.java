@@ -0,0 +1,408 @@
+package server;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import business.entities.Order;
+import business.facade.Result;
+import business.facade.Store;
+
+/**
+ * CheckoutServer serves the checkout operations of point-of-sale terminals
+ * over the binary protocol described in BinaryProtocol. All connections are
+ * multiplexed on one selector thread, which only moves bytes. The checkout
+ * operations of Store may wait, for the single writer, for a snapshot being
+ * taken or for the journal to reach the disk, so the requests are run by a
+ * pool of worker threads. The requests that have fully arrived on a
+ * connection are handed to a worker together and run in order; the worker
+ * posts their replies back to the selector thread, which writes them out
+ * together. A terminal can thus stream a whole basket without waiting for
+ * each round trip, and one terminal waiting on the store does not hold up the
+ * others. Each connection has at most one batch with the workers at a time,
+ * so its replies come back in the order of its requests.
+ *
+ */
+public class CheckoutServer implements AutoCloseable {
+	public static final int DEFAULT_PORT = 5151;
+	private static final int BUFFER_SIZE = 1 << 17;
+	private static final int MAX_PENDING_OUTPUT = 1 << 20;
+	private static final int MAX_PENDING_REQUESTS = 1 << 12;
+	private static final int WORKERS = Math.max(4,
+			2 * Runtime.getRuntime().availableProcessors());
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final ExecutorService workers = Executors.newFixedThreadPool(
+			WORKERS, runnable -> {
+				Thread thread = new Thread(runnable, "checkout-worker");
+				thread.setDaemon(true);
+				return thread;
+			});
+	private final Queue<Connection> answered =
+			new ConcurrentLinkedQueue<Connection>();
+	private Thread loop;
+	private volatile boolean closed;
+
+	/**
+	 * Opens the server channel. The server accepts connections once started.
+	 *
+	 * @param port the port to listen on, 0 for any free port
+	 * @throws IOException if the port cannot be bound
+	 */
+	public CheckoutServer(int port) throws IOException {
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port), 1024);
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Starts the selector thread.
+	 */
+	public synchronized void start() {
+		loop = new Thread(this::run, "checkout-server");
+		loop.setDaemon(true);
+		loop.start();
+	}
+
+	/**
+	 * Getter for the port the server listens on
+	 *
+	 * @return port
+	 */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Stops the server and closes all connections. The selector thread is
+	 * stopped first, so that nothing is closed under its feet; replies that
+	 * the workers finish afterwards are dropped.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		if (loop != null) {
+			selector.wakeup();
+			try {
+				loop.join();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		workers.shutdown();
+		serverChannel.close();
+		for (SelectionKey key : selector.keys()) {
+			key.channel().close();
+		}
+		selector.close();
+	}
+
+	private void run() {
+		try {
+			while (!closed) {
+				selector.select();
+				for (Connection connection; (connection = answered
+						.poll()) != null;) {
+					try {
+						connection.answered();
+					} catch (IOException | CancelledKeyException e) {
+						connection.key.channel().close();
+					}
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys()
+						.iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					try {
+						if (key.isAcceptable()) {
+							accept();
+						} else {
+							((Connection) key.attachment()).service(key);
+						}
+					} catch (IOException | CancelledKeyException e) {
+						key.channel().close();
+					}
+				}
+			}
+		} catch (ClosedSelectorException cse) {
+			// the server was closed
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			Connection connection = new Connection();
+			connection.key = channel.register(selector, SelectionKey.OP_READ,
+					connection);
+		}
+	}
+
+	/**
+	 * The buffers of one terminal. The requests and the output are only
+	 * touched by the selector thread; the replies by the worker running the
+	 * batch, until it posts the connection back.
+	 */
+	private class Connection {
+		private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+		private ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+		private final Queue<ByteBuffer> requests = new ArrayDeque<ByteBuffer>();
+		private ByteBuffer replies = ByteBuffer.allocate(BUFFER_SIZE);
+		private SelectionKey key;
+		private boolean running;
+
+		/**
+		 * Reads what has arrived, hands the complete requests to a worker
+		 * and writes as much of the replies as the socket takes. Reading is
+		 * suspended while too many requests or replies are waiting.
+		 */
+		private void service(SelectionKey key) throws IOException {
+			SocketChannel channel = (SocketChannel) key.channel();
+			if (key.isReadable()) {
+				if (channel.read(input) < 0) {
+					channel.close();
+					return;
+				}
+				input.flip();
+				for (int length; (length = BinaryProtocol
+						.frameLength(input)) >= 0;) {
+					input.position(
+							input.position() + BinaryProtocol.LENGTH_BYTES);
+					ByteBuffer frame = ByteBuffer.allocate(length);
+					ByteBuffer slice = input.slice();
+					slice.limit(length);
+					frame.put(slice).flip();
+					input.position(input.position() + length);
+					requests.add(frame);
+				}
+				input.compact();
+				dispatch();
+			}
+			write();
+		}
+
+		/**
+		 * Hands the requests waiting to a worker, unless one is already
+		 * running requests of this connection.
+		 */
+		private void dispatch() {
+			if (running || requests.isEmpty()) {
+				return;
+			}
+			running = true;
+			ByteBuffer[] batch = requests.toArray(new ByteBuffer[0]);
+			requests.clear();
+			workers.execute(() -> {
+				for (ByteBuffer frame : batch) {
+					reply(frame);
+				}
+				answered.add(this);
+				selector.wakeup();
+			});
+		}
+
+		/**
+		 * Moves the replies of the batch a worker has finished to the
+		 * output, on the selector thread, and hands over the next batch.
+		 */
+		private void answered() throws IOException {
+			replies.flip();
+			if (output.remaining() < replies.remaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(
+						output.capacity() * 2,
+						output.position() + replies.remaining()));
+				output.flip();
+				larger.put(output);
+				output = larger;
+			}
+			output.put(replies);
+			replies.clear();
+			running = false;
+			if (key.isValid()) {
+				dispatch();
+				write();
+			}
+		}
+
+		/**
+		 * Writes as much of the output as the socket takes, and chooses
+		 * what to wait for next.
+		 */
+		private void write() throws IOException {
+			output.flip();
+			((SocketChannel) key.channel()).write(output);
+			output.compact();
+			int interest = 0;
+			if (output.position() < MAX_PENDING_OUTPUT
+					&& requests.size() < MAX_PENDING_REQUESTS) {
+				interest |= SelectionKey.OP_READ;
+			}
+			if (output.position() > 0) {
+				interest |= SelectionKey.OP_WRITE;
+			}
+			key.interestOps(interest);
+		}
+
+		/**
+		 * Runs one request and appends its reply to the replies. A request
+		 * that cannot be parsed is answered with MALFORMED_REQUEST, and one
+		 * the store fails to run, for instance because its journal cannot be
+		 * written, with STORE_FAILED.
+		 */
+		private void reply(ByteBuffer frame) {
+			if (replies.remaining() < BinaryProtocol.MAX_FRAME
+					+ BinaryProtocol.LENGTH_BYTES) {
+				ByteBuffer larger = ByteBuffer
+						.allocate(replies.capacity() * 2);
+				replies.flip();
+				larger.put(replies);
+				replies = larger;
+			}
+			int start = BinaryProtocol.beginFrame(replies);
+			byte opcode = frame.hasRemaining() ? frame.get() : 0;
+			replies.put(opcode);
+			byte failure;
+			try {
+				run(opcode, frame, replies);
+				BinaryProtocol.endFrame(replies, start);
+				return;
+			} catch (BufferUnderflowException | IllegalArgumentException e) {
+				failure = BinaryProtocol.MALFORMED_REQUEST;
+			} catch (RuntimeException re) {
+				// such as the journal failing to reach the disk
+				re.printStackTrace();
+				failure = BinaryProtocol.STORE_FAILED;
+			}
+			replies.position(start + BinaryProtocol.LENGTH_BYTES + 1);
+			replies.put(failure);
+			BinaryProtocol.endFrame(replies, start);
+		}
+	}
+
+	/**
+	 * Runs a request against the store and writes the result code and values
+	 * of the reply.
+	 *
+	 * @throws BufferUnderflowException if the request is too short
+	 * @throws IllegalArgumentException if the opcode is unknown
+	 */
+	private static void run(byte opcode, ByteBuffer request,
+			ByteBuffer reply) {
+		Store store = Store.instance();
+		Result result;
+		switch (opcode) {
+		case BinaryProtocol.CREATE_TRANSACTION:
+			result = store.createTransaction(request.getInt());
+			reply.put((byte) result.getResultCode());
+			break;
+		case BinaryProtocol.PURCHASE:
+			int member = request.getInt();
+			int quantity = request.getInt();
+			result = store.purchaseProducts(member,
+					BinaryProtocol.getString(request), quantity);
+			int code = result.getResultCode();
+			reply.put((byte) code);
+			if (code == Result.OPERATION_COMPLETED
+					|| code == Result.ORDER_PLACED
+					|| code == Result.ORDER_COALESCED
+					|| code == Result.REORDER_QUEUED) {
+				reply.putInt(quantity);
+				reply.putDouble(Double.parseDouble(result.getItemTotal()));
+				reply.putDouble(
+						Double.parseDouble(result.getTransactionTotal()));
+				if (code == Result.ORDER_PLACED
+						|| code == Result.ORDER_COALESCED) {
+					reply.putInt(Order.parseId(result.getOrderId()));
+					reply.putInt(Integer.parseInt(result.getOrderQuantity()));
+				}
+			} else if (code == Result.OPERATION_FAILED) {
+				String stock = result.getProductStock();
+				reply.putInt(
+						stock.equals("none") ? 0 : Integer.parseInt(stock));
+			}
+			break;
+		case BinaryProtocol.CHECK_TRANSACTION:
+			result = store.checkTransaction(request.getInt());
+			reply.put((byte) result.getResultCode());
+			if (result.getResultCode() == Result.OPERATION_COMPLETED) {
+				reply.putDouble(
+						Double.parseDouble(result.getTransactionTotal()));
+			}
+			break;
+		case BinaryProtocol.GET_CHANGE:
+			int payer = request.getInt();
+			result = store.getChange(payer, request.getDouble());
+			reply.put((byte) result.getResultCode());
+			if (result.getResultCode() == Result.TRANSACTION_COMPLETE) {
+				reply.putDouble(
+						Double.parseDouble(result.getTransactionChange()));
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown opcode " + opcode);
+		}
+	}
+
+	/**
+	 * Runs the server until the process is stopped. Arguments: an optional
+	 * port, and "load" to start from the saved data. Without "load",
+	 * the server does not start while the journal holds changes that were not
+	 * saved.
+	 *
+	 * @param args the port and/or "load"
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		boolean load = false;
+		for (String arg : args) {
+			if (arg.equals("load")) {
+				load = true;
+			} else {
+				port = Integer.parseInt(arg);
+			}
+		}
+		try {
+			if (load) {
+				Store.retrieve();
+			} else {
+				Store.instance();
+			}
+		} catch (IOException | IllegalStateException e) {
+			System.out.println("The store could not be started: "
+					+ e.getMessage());
+			return;
+		}
+		CheckoutServer server = new CheckoutServer(port);
+		server.start();
+		System.out.println(
+				"Checkout server listening on port " + server.getPort());
+		try {
+			Thread.currentThread().join();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
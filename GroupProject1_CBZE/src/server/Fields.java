@@ -0,0 +1,208 @@
+package server;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import business.entities.Transaction;
+import business.entities.TransactionItem;
+import business.facade.Request;
+import business.facade.Result;
+
+/**
+ * Converts between the named fields used by the network front ends and the
+ * Request and Result objects of the facade. A field is named after its
+ * property in DataTransfer, e.g. "memberId" or "productStock". Dates are
+ * written as yyyy-MM-dd, a basket as productId:quantity lines separated by
+ * commas, and a shipment as order ids separated by commas.
+ *
+ */
+final class Fields {
+	static final String RESULT_CODE = "resultCode";
+	static final String START_DATE = "startDate";
+	static final String END_DATE = "endDate";
+	static final String LIMIT = "limit";
+	static final String BASKET = "basket";
+	static final String SHIPMENT = "shipment";
+	private static final String DATE_FORMAT = "yyyy-MM-dd";
+
+	private Fields() {
+	}
+
+	/**
+	 * Builds a request from named fields.
+	 *
+	 * @param fields the fields of the request
+	 * @return the request
+	 * @throws IllegalArgumentException for unknown fields and malformed values
+	 */
+	static Request toRequest(Map<String, String> fields) {
+		Request.Builder builder = Request.builder();
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			String value = field.getValue();
+			switch (field.getKey()) {
+			case "memberId":
+				builder.memberId(value);
+				break;
+			case "memberName":
+				builder.memberName(value);
+				break;
+			case "memberAddress":
+				builder.memberAddress(value);
+				break;
+			case "memberPhone":
+				builder.memberPhone(value);
+				break;
+			case "memberFeePaid":
+				builder.memberFeePaid(value);
+				break;
+			case "productId":
+				builder.productId(value);
+				break;
+			case "productName":
+				builder.productName(value);
+				break;
+			case "productStock":
+				builder.productStock(value);
+				break;
+			case "productPrice":
+				builder.productPrice(value);
+				break;
+			case "productReorderLevel":
+				builder.productReorderLevel(value);
+				break;
+			case "itemQuantity":
+				builder.itemQuantity(value);
+				break;
+			case "transactionChange":
+				builder.transactionChange(value);
+				break;
+			case "orderId":
+				builder.orderId(value);
+				break;
+			case START_DATE:
+				builder.startDate(parseDate(value));
+				break;
+			case END_DATE:
+				builder.endDate(parseDate(value));
+				break;
+			case LIMIT:
+				builder.limit(parseInt(LIMIT, value));
+				break;
+			case BASKET:
+				for (String line : value.split(",")) {
+					int colon = line.lastIndexOf(':');
+					if (colon <= 0) {
+						throw new IllegalArgumentException(
+								"Basket line is not id:quantity: " + line);
+					}
+					builder.basketLine(line.substring(0, colon), parseInt(
+							BASKET, line.substring(colon + 1)));
+				}
+				break;
+			case SHIPMENT:
+				for (String orderId : value.split(",")) {
+					builder.shipmentOrder(orderId);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException(
+						"Unknown field " + field.getKey());
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Lists the fields of a result that are set, result code first.
+	 *
+	 * @param result the result
+	 * @return the fields by name
+	 */
+	static Map<String, String> fromResult(Result result) {
+		Map<String, String> fields = new LinkedHashMap<String, String>();
+		fields.put(RESULT_CODE, String.valueOf(result.getResultCode()));
+		put(fields, "productId", result.getProductId());
+		put(fields, "productName", result.getProductName());
+		put(fields, "productStock", result.getProductStock());
+		put(fields, "productPrice", result.getProductPrice());
+		put(fields, "productReorderLevel", result.getProductReorderLevel());
+		put(fields, "itemQuantity", result.getItemQuantity());
+		put(fields, "itemTotal", result.getItemTotal());
+		put(fields, "transactionTotal", result.getTransactionTotal());
+		put(fields, "transactionChange", result.getTransactionChange());
+		put(fields, "memberId", result.getMemberId());
+		put(fields, "memberName", result.getMemberName());
+		put(fields, "memberAddress", result.getMemberAddress());
+		put(fields, "memberPhone", result.getMemberPhone());
+		put(fields, "memberDateJoined", result.getMemberDateJoined());
+		put(fields, "memberFeePaid", result.getMemberFeePaid());
+		put(fields, "orderId", result.getOrderId());
+		put(fields, "orderProductId", result.getOrderProductId());
+		put(fields, "orderProductName", result.getOrderProductName());
+		put(fields, "orderQuantity", result.getOrderQuantity());
+		put(fields, "orderDate", result.getOrderDate());
+		return fields;
+	}
+
+	/**
+	 * Lists the fields of a transaction: its date, total and the number of
+	 * items bought.
+	 *
+	 * @param transaction the transaction
+	 * @return the fields by name
+	 */
+	static Map<String, String> fromTransaction(Transaction transaction) {
+		Map<String, String> fields = new LinkedHashMap<String, String>();
+		int quantity = 0;
+		for (TransactionItem item : transaction.getItems()) {
+			quantity += item.getQuantity();
+		}
+		fields.put("transactionDate", transaction.getDate());
+		fields.put("transactionTotal", String.valueOf(transaction.getTotal()));
+		fields.put("itemQuantity", String.valueOf(quantity));
+		return fields;
+	}
+
+	/**
+	 * Parses an int field.
+	 *
+	 * @param name  name of the field, for the error message
+	 * @param value value of the field
+	 * @return the int value
+	 */
+	static int parseInt(String name, String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException(
+					"Field " + name + " is not a number: " + value);
+		}
+	}
+
+	private static Calendar parseDate(String value) {
+		SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT);
+		format.setLenient(false);
+		try {
+			Calendar date = new GregorianCalendar();
+			date.setTime(format.parse(value));
+			return date;
+		} catch (ParseException pe) {
+			throw new IllegalArgumentException(
+					"Date is not in the form " + DATE_FORMAT + ": " + value);
+		}
+	}
+
+	private static void put(Map<String, String> fields, String name,
+			String value) {
+		if (value != null) {
+			fields.put(name, value);
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package server;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import business.facade.Store;
+
+/**
+ * HttpApi exposes the Store commands as a JSON API on the JDK's HttpServer,
+ * for back-office tools. A command is reached at /api/ followed by its name,
+ * e.g. /api/searchCatalog?productId=P1; its fields are taken from the query
+ * string and, for POST, from a form-encoded body. Commands that change the
+ * store are only accepted with POST, and answered with 405 otherwise; queries
+ * and listings may also use GET.
+ *
+ * The reply is a JSON object with the status fields of the command. Listings
+ * such as /api/getProducts add a "rows" array, which is written to the client
+ * while the underlying iterator is visited, so that no listing is ever held in
+ * memory as a whole. Replies without rows are sent with their length. A
+ * malformed request is answered with 400. A request the store fails to
+ * persist, or that fails in any other way, is answered with 500; the cause is
+ * printed on the server, not sent to the client.
+ * Exchanges run on virtual threads if the JVM supports them, and otherwise on
+ * a fixed pool of daemon threads, so that a burst of requests cannot start a
+ * thread for each.
+ *
+ */
+public class HttpApi implements AutoCloseable {
+	public static final int DEFAULT_PORT = 8080;
+	private static final String CONTEXT = "/api/";
+	private static final String JSON = "application/json; charset=utf-8";
+	private static final String NO_DELAY = "sun.net.httpserver.nodelay";
+	private static final int WORKERS = Math.max(16,
+			4 * Runtime.getRuntime().availableProcessors());
+	private final HttpServer server;
+	private final ExecutorService executor = newExecutor();
+
+	static {
+		/*
+		 * Without TCP_NODELAY, the separate writes of headers and body make
+		 * every small reply wait for the client's delayed acknowledgement.
+		 * The JDK server reads the setting once, when it is first used.
+		 */
+		if (System.getProperty(NO_DELAY) == null) {
+			System.setProperty(NO_DELAY, "true");
+		}
+	}
+
+	/**
+	 * Binds the server. It accepts requests once started.
+	 *
+	 * @param port the port to listen on, 0 for any free port
+	 * @throws IOException if the port cannot be bound
+	 */
+	public HttpApi(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(port), 1024);
+		server.setExecutor(executor);
+		server.createContext(CONTEXT, this::handle);
+	}
+
+	/**
+	 * Creates an executor that starts a virtual thread per exchange if the
+	 * JVM supports them, and a fixed pool of daemon threads otherwise.
+	 *
+	 * @return the executor
+	 */
+	private static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException roe) {
+			return Executors.newFixedThreadPool(WORKERS, runnable -> {
+				Thread thread = new Thread(runnable, "http-worker");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Starts serving requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Getter for the port the server listens on
+	 *
+	 * @return port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops the server at once, and the threads that served it.
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdown();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String method = exchange.getRequestMethod();
+			if (!method.equals("GET") && !method.equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "GET, POST");
+				error(exchange, 405, "Method not allowed");
+				return;
+			}
+			String command = exchange.getRequestURI().getPath()
+					.substring(CONTEXT.length());
+			if (!StoreCommands.names().contains(command)) {
+				error(exchange, 404, "Unknown command " + command);
+				return;
+			}
+			if (StoreCommands.changesStore(command) && !method.equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				error(exchange, 405, command + " changes the store; use POST");
+				return;
+			}
+			Map<String, String> fields = new LinkedHashMap<String, String>();
+			decode(exchange.getRequestURI().getRawQuery(), fields);
+			if (method.equals("POST")) {
+				decode(readBody(exchange.getRequestBody()), fields);
+			}
+			StoreCommands.Reply reply;
+			try {
+				reply = StoreCommands.execute(command, fields);
+			} catch (IllegalArgumentException iae) {
+				// unknown fields and malformed values
+				error(exchange, 400, String.valueOf(iae.getMessage()));
+				return;
+			} catch (UncheckedIOException uioe) {
+				// the store could not write its journal or snapshot
+				uioe.printStackTrace();
+				error(exchange, 500, "The store could not save the change");
+				return;
+			} catch (RuntimeException re) {
+				re.printStackTrace();
+				error(exchange, 500, "The request failed");
+				return;
+			}
+			if (!reply.getRows().hasNext()) {
+				Writer writer = new StringWriter();
+				writeReply(reply, writer);
+				send(exchange, 200, writer.toString());
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Type", JSON);
+			exchange.sendResponseHeaders(200, 0);
+			try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+					exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+				writeReply(reply, writer);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Writes the status fields and, if there are any, streams the rows.
+	 */
+	private static void writeReply(StoreCommands.Reply reply, Writer writer)
+			throws IOException {
+		writer.write('{');
+		writeFields(reply.getStatus(), writer);
+		Iterator<Map<String, String>> rows = reply.getRows();
+		if (rows.hasNext()) {
+			writer.write(",\"rows\":[");
+			for (boolean first = true; rows.hasNext(); first = false) {
+				if (!first) {
+					writer.write(',');
+				}
+				writer.write('{');
+				writeFields(rows.next(), writer);
+				writer.write('}');
+			}
+			writer.write(']');
+		}
+		writer.write('}');
+	}
+
+	private static void writeFields(Map<String, String> fields, Writer writer)
+			throws IOException {
+		boolean first = true;
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			if (!first) {
+				writer.write(',');
+			}
+			first = false;
+			writeString(field.getKey(), writer);
+			writer.write(':');
+			writeString(field.getValue(), writer);
+		}
+	}
+
+	private static void writeString(String value, Writer writer)
+			throws IOException {
+		writer.write('"');
+		for (int index = 0; index < value.length(); index++) {
+			char character = value.charAt(index);
+			switch (character) {
+			case '"':
+				writer.write("\\\"");
+				break;
+			case '\\':
+				writer.write("\\\\");
+				break;
+			case '\n':
+				writer.write("\\n");
+				break;
+			case '\r':
+				writer.write("\\r");
+				break;
+			case '\t':
+				writer.write("\\t");
+				break;
+			default:
+				if (character < 0x20) {
+					writer.write(String.format("\\u%04x", (int) character));
+				} else {
+					writer.write(character);
+				}
+			}
+		}
+		writer.write('"');
+	}
+
+	private static void error(HttpExchange exchange, int status,
+			String message) throws IOException {
+		Writer writer = new StringWriter();
+		writer.write('{');
+		writeFields(Collections.singletonMap("message", message), writer);
+		writer.write('}');
+		send(exchange, status, writer.toString());
+	}
+
+	/**
+	 * Sends a complete body with its length, so that the connection does not
+	 * have to wait for the end of a chunked body.
+	 */
+	private static void send(HttpExchange exchange, int status, String json)
+			throws IOException {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", JSON);
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+	}
+
+	private static String readBody(InputStream body) throws IOException {
+		return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Decodes form-encoded fields, such as a query string.
+	 */
+	private static void decode(String encoded, Map<String, String> fields) {
+		if (encoded == null || encoded.isEmpty()) {
+			return;
+		}
+		for (String pair : encoded.split("&")) {
+			int equals = pair.indexOf('=');
+			String name = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			fields.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+					URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Runs the API until the process is stopped. Arguments: an optional port,
+	 * and "load" to start from the saved data. Without "load",
+	 * the server does not start while the journal holds changes that were not
+	 * saved.
+	 *
+	 * @param args the port and/or "load"
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		boolean load = false;
+		for (String arg : args) {
+			if (arg.equals("load")) {
+				load = true;
+			} else {
+				port = Integer.parseInt(arg);
+			}
+		}
+		try {
+			if (load) {
+				Store.retrieve();
+			} else {
+				Store.instance();
+			}
+		} catch (IOException | IllegalStateException e) {
+			System.out.println("The store could not be started: "
+					+ e.getMessage());
+			return;
+		}
+		HttpApi api = new HttpApi(port);
+		api.start();
+		System.out.println("Store API listening on port " + api.getPort());
+	}
+}
@@ -0,0 +1,144 @@
+package server;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The line protocol spoken by StoreServer and StoreClient. Every message is a
+ * single line of tab-separated tokens; the first token is a tag and the rest
+ * are fields written as name=value. Tabs, line breaks and backslashes within
+ * values are escaped with a backslash.
+ *
+ * A request line is tagged with the name of the command. A reply consists of
+ * one line tagged ROW for every row of a listing, followed by one line tagged
+ * END that carries the result code and the fields of the result. A request
+ * that fails is answered with a line tagged ERROR and a message field instead
+ * of the END line. Requests may be pipelined; replies come back in order.
+ *
+ */
+final class LineProtocol {
+	static final String ROW = "ROW";
+	static final String END = "END";
+	static final String ERROR = "ERROR";
+	static final String MESSAGE = "message";
+
+	private LineProtocol() {
+	}
+
+	/**
+	 * Writes a line with a tag and fields.
+	 *
+	 * @param tag    the tag
+	 * @param fields the fields
+	 * @return the line, without line terminator
+	 */
+	static String format(String tag, Map<String, String> fields) {
+		StringBuilder line = new StringBuilder(tag);
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			line.append('\t');
+			escape(field.getKey(), line);
+			line.append('=');
+			escape(field.getValue(), line);
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Returns the tag of a line.
+	 *
+	 * @param line the line
+	 * @return the first token
+	 */
+	static String tag(String line) {
+		int end = line.indexOf('\t');
+		return end < 0 ? line : line.substring(0, end);
+	}
+
+	/**
+	 * Reads the fields of a line.
+	 *
+	 * @param line the line
+	 * @return the fields by name, in the order written
+	 * @throws IllegalArgumentException if a field has no name
+	 */
+	static Map<String, String> fields(String line) {
+		Map<String, String> fields = new LinkedHashMap<String, String>();
+		List<String> tokens = split(line);
+		for (int index = 1; index < tokens.size(); index++) {
+			String token = tokens.get(index);
+			int equals = token.indexOf('=');
+			if (equals <= 0) {
+				throw new IllegalArgumentException("Malformed field " + token);
+			}
+			fields.put(unescape(token.substring(0, equals)),
+					unescape(token.substring(equals + 1)));
+		}
+		return fields;
+	}
+
+	private static List<String> split(String line) {
+		List<String> tokens = new ArrayList<String>();
+		int start = 0;
+		for (int index; (index = line.indexOf('\t', start)) >= 0;) {
+			tokens.add(line.substring(start, index));
+			start = index + 1;
+		}
+		tokens.add(line.substring(start));
+		return tokens;
+	}
+
+	private static void escape(String value, StringBuilder line) {
+		for (int index = 0; index < value.length(); index++) {
+			char character = value.charAt(index);
+			switch (character) {
+			case '\\':
+				line.append("\\\\");
+				break;
+			case '\t':
+				line.append("\\t");
+				break;
+			case '\n':
+				line.append("\\n");
+				break;
+			case '\r':
+				line.append("\\r");
+				break;
+			default:
+				line.append(character);
+			}
+		}
+	}
+
+	private static String unescape(String value) {
+		if (value.indexOf('\\') < 0) {
+			return value;
+		}
+		StringBuilder result = new StringBuilder(value.length());
+		for (int index = 0; index < value.length(); index++) {
+			char character = value.charAt(index);
+			if (character == '\\' && index + 1 < value.length()) {
+				character = value.charAt(++index);
+				switch (character) {
+				case 't':
+					character = '\t';
+					break;
+				case 'n':
+					character = '\n';
+					break;
+				case 'r':
+					character = '\r';
+					break;
+				default:
+					break;
+				}
+			}
+			result.append(character);
+		}
+		return result.toString();
+	}
+}
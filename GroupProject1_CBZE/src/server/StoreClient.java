@@ -0,0 +1,155 @@
+package server;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import business.facade.Request;
+
+/**
+ * A client of StoreServer, e.g. for a point-of-sale lane or for testing over
+ * the loopback interface. Requests can be sent one at a time with call(), or
+ * pipelined: send() any number of requests, flush() them, and receive() the
+ * replies in the same order.
+ *
+ */
+public class StoreClient implements AutoCloseable {
+	private final Socket socket;
+	private final BufferedReader reader;
+	private final Writer writer;
+
+	/**
+	 * Connects to a server.
+	 *
+	 * @param host the host of the server
+	 * @param port the port of the server
+	 * @throws IOException if the connection fails
+	 */
+	public StoreClient(String host, int port) throws IOException {
+		socket = new Socket(host, port);
+		socket.setTcpNoDelay(true);
+		reader = new BufferedReader(new InputStreamReader(
+				socket.getInputStream(), StandardCharsets.UTF_8));
+		writer = new BufferedWriter(new OutputStreamWriter(
+				socket.getOutputStream(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Sends a request and waits for its reply.
+	 *
+	 * @param command the name of the command
+	 * @param fields  the fields of the request
+	 * @return the reply
+	 * @throws IOException if the connection fails
+	 */
+	public StoreCommands.Reply call(String command, Map<String, String> fields)
+			throws IOException {
+		send(command, fields);
+		flush();
+		return receive();
+	}
+
+	/**
+	 * Sends a request and waits for its reply. The fields are given as
+	 * alternating names and values, e.g. call("searchCatalog", "productId",
+	 * "P1").
+	 *
+	 * @param command         the name of the command
+	 * @param namesAndValues the fields of the request
+	 * @return the reply
+	 * @throws IOException if the connection fails
+	 */
+	public StoreCommands.Reply call(String command, String... namesAndValues)
+			throws IOException {
+		return call(command, fields(namesAndValues));
+	}
+
+	/**
+	 * Queues a request without waiting for its reply.
+	 *
+	 * @param command the name of the command
+	 * @param fields  the fields of the request
+	 * @throws IOException if the connection fails
+	 */
+	public void send(String command, Map<String, String> fields)
+			throws IOException {
+		writer.write(LineProtocol.format(command, fields));
+		writer.write('\n');
+	}
+
+	/**
+	 * Sends the queued requests.
+	 *
+	 * @throws IOException if the connection fails
+	 */
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	/**
+	 * Reads the reply to the oldest request that has not been answered yet.
+	 *
+	 * @return the reply
+	 * @throws IOException              if the connection fails
+	 * @throws IllegalArgumentException if the server could not run the request
+	 */
+	public StoreCommands.Reply receive() throws IOException {
+		List<Map<String, String>> rows = new ArrayList<Map<String, String>>();
+		while (true) {
+			String line = reader.readLine();
+			if (line == null) {
+				throw new EOFException("Connection closed by the server");
+			}
+			String tag = LineProtocol.tag(line);
+			if (tag.equals(LineProtocol.ROW)) {
+				rows.add(LineProtocol.fields(line));
+			} else if (tag.equals(LineProtocol.END)) {
+				return new StoreCommands.Reply(LineProtocol.fields(line),
+						rows.iterator());
+			} else if (tag.equals(LineProtocol.ERROR)) {
+				throw new IllegalArgumentException(LineProtocol.fields(line)
+						.get(LineProtocol.MESSAGE));
+			} else {
+				throw new IOException("Unexpected reply " + line);
+			}
+		}
+	}
+
+	/**
+	 * Closes the connection.
+	 */
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+
+	/**
+	 * Pairs up alternating names and values.
+	 *
+	 * @param namesAndValues names and values
+	 * @return the fields by name
+	 */
+	public static Map<String, String> fields(String... namesAndValues) {
+		if (namesAndValues.length % 2 != 0) {
+			throw new IllegalArgumentException("A field has no value");
+		}
+		Map<String, String> fields = new LinkedHashMap<String, String>();
+		for (int index = 0; index < namesAndValues.length; index += 2) {
+			fields.put(namesAndValues[index], namesAndValues[index + 1]);
+		}
+		return fields;
+	}
+}
@@ -0,0 +1,257 @@
+package server;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import business.entities.Transaction;
+import business.facade.Request;
+import business.facade.Result;
+import business.facade.Store;
+
+/**
+ * Maps the commands of the network front ends onto the Store facade. A command
+ * is named after the Store method it calls, e.g. "addMember" or
+ * "purchaseProducts", and takes the fields of its request by name. Batch
+ * commands reply with a row for the detail result of every line. The commands
+ * that change the store are told apart from the queries and listings, so that
+ * front ends can accept them only in requests meant to change state. Each call
+ * builds a request of its own, so commands from any number of connections can
+ * run at the same time.
+ *
+ */
+public final class StoreCommands {
+	private static final Map<String, Command> commands =
+			new HashMap<String, Command>();
+	private static final Set<String> updates = new HashSet<String>();
+
+	static {
+		update("addMember", Store::addMember);
+		update("removeMember", Store::removeMember);
+		update("addProduct", Store::addProduct);
+		update("createTransaction", Store::createTransaction);
+		update("purchaseProducts", Store::purchaseProducts);
+		update("checkTransaction", Store::checkTransaction);
+		update("getChange", Store::getChange);
+		update("processShipments", Store::processShipments);
+		update("changePrice", Store::changePrice);
+		single("searchMembership", Store::searchMembership);
+		single("searchCatalog", Store::searchCatalog);
+		single("getSalesReport", Store::getSalesReport);
+		batch("purchaseBasket", Store::purchaseBasket);
+		batch("receiveShipment", Store::receiveShipment);
+		list("searchProductNames", Store::searchProductNames);
+		list("getProductOrders", Store::getProductOrders);
+		list("getLowStockProducts", (store, request) -> store
+				.getLowStockProducts());
+		list("getMembers", (store, request) -> store.getMembers());
+		list("getProducts", (store, request) -> store.getProducts());
+		list("getOrders", (store, request) -> store.getOrders());
+		transactions("getTransactions", Store::getTransactions);
+		transactions("getSales", Store::getSales);
+		commands.put("getInventoryValue", (store, request) -> {
+			Map<String, String> status = completed();
+			status.put("inventoryValue",
+					String.valueOf(store.getInventoryValue()));
+			return new Reply(status, Collections.emptyIterator());
+		});
+		commands.put("getReorderMetrics", (store, request) -> {
+			Map<String, String> status = completed();
+			status.put("ordersPlaced", String.valueOf(store.getOrdersPlaced()));
+			status.put("ordersCoalesced",
+					String.valueOf(store.getOrdersCoalesced()));
+			return new Reply(status, Collections.emptyIterator());
+		});
+		commands.put("getJournalMetrics", (store, request) -> {
+			Map<String, String> status = completed();
+			status.put("checkpoints", String.valueOf(store.getCheckpoints()));
+			status.put("checkpointMillis",
+					String.valueOf(store.getCheckpointMillis()));
+			status.put("replayMillis", String.valueOf(store.getReplayMillis()));
+			status.put("recordsReplayed",
+					String.valueOf(store.getRecordsReplayed()));
+			return new Reply(status, Collections.emptyIterator());
+		});
+	}
+
+	private StoreCommands() {
+	}
+
+	/**
+	 * Runs a command against the store.
+	 *
+	 * @param command    the name of the command
+	 * @param parameters the fields of the request
+	 * @return the reply of the store
+	 * @throws IllegalArgumentException for unknown commands and malformed
+	 *                                  fields
+	 */
+	public static Reply execute(String command,
+			Map<String, String> parameters) {
+		Command handler = commands.get(command);
+		if (handler == null) {
+			throw new IllegalArgumentException("Unknown command " + command);
+		}
+		return handler.run(Store.instance(), Fields.toRequest(parameters));
+	}
+
+	/**
+	 * Returns the names of all commands.
+	 *
+	 * @return the command names
+	 */
+	public static Set<String> names() {
+		return Collections.unmodifiableSet(commands.keySet());
+	}
+
+	/**
+	 * Tells whether a command changes the store, rather than only reading it.
+	 *
+	 * @param command the name of the command
+	 * @return true iff the command changes the store
+	 */
+	public static boolean changesStore(String command) {
+		return updates.contains(command);
+	}
+
+	private static void update(String name, Command.Single command) {
+		single(name, command);
+		updates.add(name);
+	}
+
+	private static void single(String name, Command.Single command) {
+		commands.put(name, (store, request) -> new Reply(
+				Fields.fromResult(command.run(store, request)),
+				Collections.emptyIterator()));
+	}
+
+	/**
+	 * Registers a batch command. Batches buy or receive goods, so they all
+	 * change the store.
+	 */
+	private static void batch(String name, Command.Single command) {
+		updates.add(name);
+		commands.put(name, (store, request) -> {
+			Result result = command.run(store, request);
+			return new Reply(Fields.fromResult(result),
+					new Rows<Result>(result.getDetails(), Fields::fromResult));
+		});
+	}
+
+	private static void list(String name, Command.Listing<Result> command) {
+		commands.put(name, (store, request) -> new Reply(completed(),
+				new Rows<Result>(command.run(store, request),
+						Fields::fromResult)));
+	}
+
+	private static void transactions(String name,
+			Command.Listing<Transaction> command) {
+		commands.put(name, (store, request) -> new Reply(completed(),
+				new Rows<Transaction>(command.run(store, request),
+						Fields::fromTransaction)));
+	}
+
+	private static Map<String, String> completed() {
+		Map<String, String> status = new HashMap<String, String>();
+		status.put(Fields.RESULT_CODE,
+				String.valueOf(Result.OPERATION_COMPLETED));
+		return status;
+	}
+
+	/**
+	 * A command bound to a Store method.
+	 */
+	private interface Command {
+		Reply run(Store store, Request request);
+
+		interface Single {
+			Result run(Store store, Request request);
+		}
+
+		interface Listing<T> {
+			Iterator<T> run(Store store, Request request);
+		}
+	}
+
+	/**
+	 * Converts the elements of an iterator into fields as they are visited,
+	 * so that a listing is never assembled in memory.
+	 */
+	private static class Rows<T> implements Iterator<Map<String, String>> {
+		private final Iterator<T> iterator;
+		private final Function<T, Map<String, String>> converter;
+
+		private Rows(Iterator<T> iterator,
+				Function<T, Map<String, String>> converter) {
+			this.iterator = iterator;
+			this.converter = converter;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return iterator.hasNext();
+		}
+
+		@Override
+		public Map<String, String> next() {
+			return converter.apply(iterator.next());
+		}
+	}
+
+	/**
+	 * The reply to a command: a status with the result code and the fields of
+	 * the result, preceded by zero or more rows for listings.
+	 *
+	 */
+	public static class Reply {
+		private final Map<String, String> status;
+		private final Iterator<Map<String, String>> rows;
+
+		/**
+		 * Creates a reply.
+		 *
+		 * @param status the result code and fields of the result
+		 * @param rows   the rows of a listing
+		 */
+		public Reply(Map<String, String> status,
+				Iterator<Map<String, String>> rows) {
+			this.status = status;
+			this.rows = rows;
+		}
+
+		/**
+		 * Getter for the status fields
+		 *
+		 * @return status
+		 */
+		public Map<String, String> getStatus() {
+			return status;
+		}
+
+		/**
+		 * Getter for the result code in the status
+		 *
+		 * @return result code
+		 */
+		public int getResultCode() {
+			return Fields.parseInt(Fields.RESULT_CODE,
+					status.get(Fields.RESULT_CODE));
+		}
+
+		/**
+		 * Returns the rows of a listing. They can be visited once.
+		 *
+		 * @return iterator to the rows
+		 */
+		public Iterator<Map<String, String>> getRows() {
+			return rows;
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package server;
+
+/**
+ * @author Zachary Boling-Green, Brian Le, Ethan Nunn and Colin Bolduc
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+import business.facade.Store;
+
+/**
+ * StoreServer lets point-of-sale clients reach the Store over TCP, speaking
+ * the line protocol described in LineProtocol. Every connection is served by
+ * a thread of its own that blocks on the socket. Where the JVM offers virtual
+ * threads they are used, so that thousands of lanes cost little more than
+ * their sockets; otherwise daemon platform threads are used.
+ *
+ */
+public class StoreServer implements AutoCloseable {
+	public static final int DEFAULT_PORT = 5150;
+	private static final ThreadFactory connectionThreads = connectionThreads();
+	private final ServerSocket serverSocket;
+	private final Set<Socket> connections = Collections
+			.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+	private volatile boolean running;
+
+	/**
+	 * Opens the server socket. The server accepts connections once started.
+	 *
+	 * @param port the port to listen on, 0 for any free port
+	 * @throws IOException if the port cannot be bound
+	 */
+	public StoreServer(int port) throws IOException {
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(new InetSocketAddress(port), 1024);
+	}
+
+	/**
+	 * Starts accepting connections on a thread of its own.
+	 */
+	public void start() {
+		running = true;
+		Thread acceptor = new Thread(this::accept, "store-server-accept");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Getter for the port the server listens on
+	 *
+	 * @return port
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Stops accepting connections and closes the open ones.
+	 */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		serverSocket.close();
+		for (Socket socket : connections) {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Returns a factory for threads that serve a connection: virtual threads
+	 * if the JVM supports them, daemon platform threads otherwise.
+	 *
+	 * @return the thread factory
+	 */
+	private static ThreadFactory connectionThreads() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Method factory = Class.forName("java.lang.Thread$Builder")
+					.getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (ReflectiveOperationException roe) {
+			return runnable -> {
+				Thread thread = new Thread(runnable);
+				thread.setDaemon(true);
+				return thread;
+			};
+		}
+	}
+
+	private void accept() {
+		while (running) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				connections.add(socket);
+				connectionThreads.newThread(() -> serve(socket)).start();
+			} catch (IOException ioe) {
+				if (running) {
+					ioe.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Serves one connection until the client closes it. Replies are flushed
+	 * once no further request is waiting, so a pipelined batch of requests is
+	 * answered with few writes.
+	 */
+	private void serve(Socket socket) {
+		try (Socket connection = socket;
+				BufferedReader reader = new BufferedReader(
+						new InputStreamReader(connection.getInputStream(),
+								StandardCharsets.UTF_8));
+				Writer writer = new BufferedWriter(new OutputStreamWriter(
+						connection.getOutputStream(),
+						StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					reply(line, writer);
+				}
+				if (!reader.ready()) {
+					writer.flush();
+				}
+			}
+		} catch (IOException ioe) {
+			// the connection was closed by the client or the server
+		} finally {
+			connections.remove(socket);
+		}
+	}
+
+	private static void reply(String line, Writer writer) throws IOException {
+		try {
+			StoreCommands.Reply reply = StoreCommands.execute(
+					LineProtocol.tag(line), LineProtocol.fields(line));
+			for (Iterator<Map<String, String>> rows = reply.getRows(); rows
+					.hasNext();) {
+				writer.write(
+						LineProtocol.format(LineProtocol.ROW, rows.next()));
+				writer.write('\n');
+			}
+			writer.write(
+					LineProtocol.format(LineProtocol.END, reply.getStatus()));
+		} catch (RuntimeException re) {
+			writer.write(LineProtocol.format(LineProtocol.ERROR,
+					Collections.singletonMap(LineProtocol.MESSAGE,
+							String.valueOf(re.getMessage()))));
+		}
+		writer.write('\n');
+	}
+
+	/**
+	 * Runs the server until the process is stopped. Arguments: an optional
+	 * port, and "load" to start from the saved data. Without "load",
+	 * the server does not start while the journal holds changes that were not
+	 * saved.
+	 *
+	 * @param args the port and/or "load"
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		boolean load = false;
+		for (String arg : args) {
+			if (arg.equals("load")) {
+				load = true;
+			} else {
+				port = Integer.parseInt(arg);
+			}
+		}
+		try {
+			if (load) {
+				Store.retrieve();
+			} else {
+				Store.instance();
+			}
+		} catch (IOException | IllegalStateException e) {
+			System.out.println("The store could not be started: "
+					+ e.getMessage());
+			return;
+		}
+		StoreServer server = new StoreServer(port);
+		server.start();
+		System.out.println(
+				"Store server listening on port " + server.getPort());
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				server.close();
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+			}
+		}));
+		try {
+			Thread.currentThread().join();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
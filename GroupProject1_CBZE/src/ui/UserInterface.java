@@ -7,11 +7,14 @@ package ui;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.NoSuchFileException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 import business.entities.Transaction;
@@ -48,6 +51,7 @@ public class UserInterface {
 	private static final int GET_PRODUCTS = 12;
 	private static final int SAVE = 13;
 	private static final int HELP = 14;
+	private static final int RECEIVE_MANIFEST = 15;
 
 	/**
 	 * Made private for singleton pattern. Conditionally looks for any saved
@@ -57,7 +61,7 @@ public class UserInterface {
 		if (yesOrNo("Look for saved data and use it?")) {
 			retrieve();
 		} else {
-			store = Store.instance();
+			startStore();
 			if (yesOrNo(
 					"Do you want to generate a test bed and invoke the functionality using asserts?")) {
 				AutomatedTester auto = new AutomatedTester();
@@ -206,7 +210,7 @@ public class UserInterface {
 			try {
 				int value = Integer.parseInt(
 						getToken("Enter command:" + HELP + " for help"));
-				if (value >= EXIT && value <= HELP) {
+				if (value >= EXIT && value <= RECEIVE_MANIFEST) {
 					return value;
 				}
 			} catch (NumberFormatException nfe) {
@@ -241,6 +245,8 @@ public class UserInterface {
 		System.out.println(GET_PRODUCTS + " to  print all products");
 		System.out.println(SAVE + " to save data");
 		System.out.println(HELP + " for help");
+		System.out.println(
+				RECEIVE_MANIFEST + " to receive a shipment from a manifest");
 	}
 
 	/**
@@ -250,11 +256,12 @@ public class UserInterface {
 	 * 
 	 */
 	public void addMember() {
-		Request.instance().setMemberName(getName("Enter member name"));
-		Request.instance().setMemberAddress(getName("Enter address"));
-		Request.instance().setMemberPhone(getName("Enter phone"));
-		Request.instance().setMemberFeePaid(getName("Enter fee paid"));
-		Result result = store.addMember(Request.instance());
+		Request request = Request.builder()
+				.memberName(getName("Enter member name"))
+				.memberAddress(getName("Enter address"))
+				.memberPhone(getName("Enter phone"))
+				.memberFeePaid(getName("Enter fee paid")).build();
+		Result result = store.addMember(request);
 		if (result.getResultCode() != Result.OPERATION_COMPLETED) {
 			System.out.println("Could not add member");
 		} else {
@@ -270,12 +277,13 @@ public class UserInterface {
 	 * 
 	 */
 	public void removeMember() {
-		Request.instance().setMemberId(getToken("Enter member id"));
-		Result result = store.removeMember(Request.instance());
+		Request request = Request.builder()
+				.memberId(getToken("Enter member id")).build();
+		Result result = store.removeMember(request);
 		switch (result.getResultCode()) {
 		case Result.NO_SUCH_MEMBER:
 			System.out.println("No such Member with id "
-					+ Request.instance().getMemberId() + " in Store");
+					+ request.getMemberId() + " in Store");
 			break;
 		case Result.OPERATION_FAILED:
 			System.out.println("Member could not be removed");
@@ -295,19 +303,19 @@ public class UserInterface {
 	 * 
 	 */
 	public void addProducts() {
-		Request.instance().setProductName(getName("Enter name"));
-		Request.instance().setProductId(getToken("Enter id"));
-		Request.instance().setProductStock(
-				String.valueOf(getNumber("Enter stock at hand")));
-		Request.instance()
-				.setProductPrice(String.valueOf(getCashDouble("Enter price")));
-		Request.instance().setProductReorderLevel(
-				String.valueOf(getNumber("Enter reorder level")));
-		Result result = store.addProduct(Request.instance());
+		Request request = Request.builder().productName(getName("Enter name"))
+				.productId(getToken("Enter id"))
+				.productStock(String.valueOf(getNumber("Enter stock at hand")))
+				.productPrice(String.valueOf(getCashDouble("Enter price")))
+				.productReorderLevel(
+						String.valueOf(getNumber("Enter reorder level")))
+				.build();
+		Result result = store.addProduct(request);
 		if (result.getResultCode() == Result.OPERATION_COMPLETED) {
 			System.out.println("Product " + result.getProductName() + " added");
 		} else if (result.getResultCode() == Result.DUPLICATE_ID) {
-			System.out.println("Product id already exists in the system");
+			System.out.println(
+					"Product id or name already exists in the system");
 		} else {
 			System.out.println("Product could not be added");
 		}
@@ -316,60 +324,126 @@ public class UserInterface {
 	/**
 	 * Method called for checking out products. Prompts the user for the
 	 * appropriate values and uses applicable Store methods for purchasing and
-	 * paying for products.
+	 * paying for products. The products entered are purchased as one basket.
+	 * Each line is checked as it is entered, so an unknown product or a
+	 * quantity the stock cannot cover is refused on the spot. Should the
+	 * basket still fail, because the stock ran short in the meantime, the
+	 * basket is kept and the cashier may correct the line and submit it
+	 * again.
 	 * 
 	 */
 	public void checkOutProducts() {
-		Request.instance().setMemberId(getToken("Enter member id"));
-		Result result = store.createTransaction(Request.instance());
+		String memberId = getToken("Enter member id");
+		Request request = Request.builder().memberId(memberId).build();
+		Result result = store.createTransaction(request);
 		if (result.getResultCode() == Result.NO_SUCH_MEMBER) {
-			System.out.println(
-					"No member with id " + Request.instance().getMemberId());
+			System.out.println("No member with id " + memberId);
 			return;
 		}
+		Map<String, Integer> basket = new LinkedHashMap<String, Integer>();
 		do {
-			Request.instance().setProductId(getToken("Enter product id"));
-			Request.instance().setItemQuantity(
-					String.valueOf(getNumber("Enter product quantity")));
-			result = store.purchaseProducts(Request.instance());
-			if (result.getResultCode() == Result.NO_SUCH_PRODUCT) {
+			String productId = getToken("Enter product id");
+			Result product = store.searchCatalog(
+					Request.builder().productId(productId).build());
+			if (product.getResultCode() == Result.NO_SUCH_PRODUCT) {
 				System.out.println("Product not found");
+				continue;
+			}
+			int quantity = getNumber("Enter product quantity");
+			if (quantity <= 0) {
+				System.out.println("Quantity must be positive");
+			} else if (basket.getOrDefault(productId, 0)
+					+ quantity > stock(product)) {
+				System.out.println(
+						"Insufficient stock for " + product.getProductName());
+				System.out.println(product.getProductStock() + " available");
 			} else {
-				if (result.getResultCode() == Result.OPERATION_FAILED) {
-					System.out.println("Insufficient stock for "
-							+ result.getProductName());
-					System.out.println(result.getProductStock() + " available");
+				basket.merge(productId, quantity, Integer::sum);
+			}
+		} while (yesOrNo("Check out more items?"));
+		while (!basket.isEmpty()) {
+			Request.Builder purchase = Request.builder().memberId(memberId);
+			for (Map.Entry<String, Integer> line : basket.entrySet()) {
+				purchase.basketLine(line.getKey(), line.getValue());
+			}
+			result = store.purchaseBasket(purchase.build());
+			if (result.getResultCode() == Result.NO_SUCH_PRODUCT) {
+				System.out.println("Product " + result.getProductId()
+						+ " not found, removed from the basket");
+				basket.remove(result.getProductId());
+			} else if (result.getResultCode() == Result.OPERATION_FAILED) {
+				System.out.println(
+						"Insufficient stock for " + result.getProductName());
+				System.out.println(result.getProductStock() + " available");
+				int quantity = getNumber("Enter new quantity, 0 to remove");
+				if (quantity > 0) {
+					basket.put(result.getProductId(), quantity);
 				} else {
-					System.out.println(result.getProductName() + " "
-							+ result.getItemQuantity() + " $"
-							+ result.getProductPrice() + " $"
-							+ result.getItemTotal());
-					System.out.println(
-							"Subtotal: $" + result.getTransactionTotal());
-					if (result.getResultCode() == Result.ORDER_PLACED) {
-						System.out.println("Reordered "
-								+ result.getOrderQuantity() + " of "
-								+ result.getProductName() + " as order number "
-								+ result.getOrderId());
-					}
+					basket.remove(result.getProductId());
 				}
+			} else {
+				printBasket(result);
+				break;
 			}
-		} while (yesOrNo("Check out more items?"));
-		result = store.checkTransaction(Request.instance());
+			if (!basket.isEmpty() && !yesOrNo("Check out the basket?")) {
+				break;
+			}
+		}
+		result = store.checkTransaction(request);
 		if (result.getResultCode() == Result.TRANSACTION_EMPTY) {
 			System.out.println("Transaction terminated");
 		} else {
 			System.out.println(
 					"Transaction Total: " + result.getTransactionTotal());
 			do {
-				Request.instance().setTransactionChange(String.valueOf(
-						getCashDouble("Enter sufficient cash value: ")));
-				result = store.getChange(Request.instance());
+				Request payment = Request.builder().memberId(memberId)
+						.transactionChange(String.valueOf(
+								getCashDouble("Enter sufficient cash value: ")))
+						.build();
+				result = store.getChange(payment);
 			} while (result.getResultCode() == Result.INSUFFICIENT_FUNDS);
 			System.out.println("Change owed: " + result.getTransactionChange());
 		}
 	}
 
+	/**
+	 * Prints the lines of a basket that was checked out, with the reorders
+	 * they caused, and the subtotal.
+	 * 
+	 * @param result the result of the basket
+	 */
+	private void printBasket(Result result) {
+		for (Iterator<Result> details = result.getDetails(); details
+				.hasNext();) {
+			Result detail = details.next();
+			System.out.println(detail.getProductName() + " "
+					+ detail.getItemQuantity() + " $"
+					+ detail.getProductPrice() + " $" + detail.getItemTotal());
+			if (detail.getResultCode() == Result.ORDER_PLACED) {
+				System.out.println("Reordered " + detail.getOrderQuantity()
+						+ " of " + detail.getProductName()
+						+ " as order number " + detail.getOrderId());
+			} else if (detail.getResultCode() == Result.REORDER_QUEUED) {
+				System.out.println(
+						"Reorder of " + detail.getProductName() + " queued");
+			} else if (detail.getResultCode() == Result.ORDER_COALESCED) {
+				System.out.println("Added to order number "
+						+ detail.getOrderId() + ", now "
+						+ detail.getOrderQuantity() + " of "
+						+ detail.getProductName());
+			}
+		}
+		System.out.println("Subtotal: $" + result.getTransactionTotal());
+	}
+
+	/**
+	 * Reads the stock of the product in a result, where "none" stands for 0.
+	 */
+	private static int stock(Result result) {
+		String stock = result.getProductStock();
+		return stock.equals("none") ? 0 : Integer.parseInt(stock);
+	}
+
 	/**
 	 * Method to be called for processing shipments. Prompts the user for the
 	 * appropriate values and uses the appropriate Store method for processing
@@ -378,8 +452,9 @@ public class UserInterface {
 	 */
 	public void processShipments() {
 		do {
-			Request.instance().setOrderId(getToken("Enter order number"));
-			Result result = store.processShipments(Request.instance());
+			Request request = Request.builder()
+					.orderId(getToken("Enter order number")).build();
+			Result result = store.processShipments(request);
 			if (result.getResultCode() == Result.NO_ORDER_FOUND) {
 				System.out.println(
 						"Order not found. Shipment could not be processed");
@@ -397,6 +472,41 @@ public class UserInterface {
 		} while (true);
 	}
 
+	/**
+	 * Method to be called for receiving a whole shipment at once. Prompts the
+	 * user for the name of a manifest file listing one order id per line and
+	 * uses the appropriate Store method for receiving the orders.
+	 * 
+	 */
+	public void receiveManifest() {
+		Request request;
+		try {
+			request = Request.builder()
+					.shipmentManifest(getName("Enter manifest file name"))
+					.build();
+		} catch (IOException ioe) {
+			System.out.println("Manifest could not be read");
+			return;
+		}
+		Result result = store.receiveShipment(request);
+		int received = 0;
+		for (Iterator<Result> details = result.getDetails(); details
+				.hasNext();) {
+			Result detail = details.next();
+			if (detail.getResultCode() == Result.OPERATION_COMPLETED) {
+				received++;
+				System.out.println(detail.getOrderId() + " received: "
+						+ detail.getProductId() + " "
+						+ detail.getProductName() + " "
+						+ detail.getProductStock());
+			} else {
+				System.out.println(detail.getOrderId() + " not found");
+			}
+		}
+		System.out.println(received + " of " + request.getShipment().size()
+				+ " orders received");
+	}
+
 	/**
 	 * Method to be called for changing a product's price. Prompts the user for
 	 * the appropriate values (product id and new price) and uses the
@@ -404,9 +514,10 @@ public class UserInterface {
 	 * 
 	 */
 	public void changeProductPrice() {
-		Request.instance().setProductId(getToken("Enter product id"));
-		Request.instance().setProductPrice(getToken("Enter new price"));
-		Result result = store.changePrice(Request.instance());
+		Request request = Request.builder()
+				.productId(getToken("Enter product id"))
+				.productPrice(getToken("Enter new price")).build();
+		Result result = store.changePrice(request);
 		switch (result.getResultCode()) {
 		case Result.NO_SUCH_PRODUCT:
 			System.out.println("No such item exists in the system");
@@ -484,17 +595,17 @@ public class UserInterface {
 	 * 
 	 */
 	public void getTransactions() {
-		Request.instance().setMemberId(getToken("Enter member id"));
-		Request.instance().setStartDate(getDate(
-				"Please enter the beginning date of the period for which you want records as mm/dd/yy"));
-		Request.instance().setEndDate(getDate(
-				"Please enter the end date of the period for which you want records as mm/dd/yy"));
-		if (Request.instance().getStartDate()
-				.compareTo(Request.instance().getEndDate()) > 0) {
+		Request request = Request.builder()
+				.memberId(getToken("Enter member id"))
+				.startDate(getDate(
+						"Please enter the beginning date of the period for which you want records as mm/dd/yy"))
+				.endDate(getDate(
+						"Please enter the end date of the period for which you want records as mm/dd/yy"))
+				.build();
+		if (request.getStartDate().compareTo(request.getEndDate()) > 0) {
 			System.out.println("The second date must be after the first date");
 		} else {
-			Iterator<Transaction> result = store
-					.getTransactions(Request.instance());
+			Iterator<Transaction> result = store.getTransactions(request);
 			while (result.hasNext()) {
 				Transaction transaction = (Transaction) result.next();
 				System.out.println(transaction.getDate());
@@ -582,16 +693,40 @@ public class UserInterface {
 		try {
 			if (store == null) {
 				store = Store.retrieve();
-				if (store != null) {
-					System.out.println(
-							" The store has been successfully retrieved from the file StoreData \n");
-				} else {
-					System.out.println("File doesnt exist; creating new store");
-					store = Store.instance();
-				}
+				System.out.println(
+						" The store has been successfully retrieved from the file StoreData \n");
+			}
+		} catch (NoSuchFileException nsfe) {
+			System.out.println("File doesnt exist; creating new store");
+			startStore();
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+			System.out.println("Saved data could not be loaded; exiting");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Starts a new store. If changes that were not saved are still in the
+	 * journal, they are only discarded if the user says so; otherwise the
+	 * program exits, so that the saved data may be loaded next time.
+	 */
+	private void startStore() {
+		try {
+			store = Store.instance();
+		} catch (IllegalStateException ise) {
+			System.out.println(ise.getMessage());
+			if (!yesOrNo("Discard the changes and start a new store?")) {
+				System.out.println("Exiting; look for saved data next time");
+				System.exit(0);
+			}
+			try {
+				store = Store.reset();
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+				System.out.println("The journal could not be discarded");
+				System.exit(1);
 			}
-		} catch (Exception cnfe) {
-			cnfe.printStackTrace();
 		}
 	}
 
@@ -620,6 +755,9 @@ public class UserInterface {
 			case PROCESS_SHIPMENT:
 				processShipments();
 				break;
+			case RECEIVE_MANIFEST:
+				receiveManifest();
+				break;
 			case CHANGE_PRICE:
 				changeProductPrice();
 				break;